@@ -0,0 +1,85 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.audit.AuditTrail;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.repository.StudentRepository;
+import gr.aueb.cf.studentapp.service.StudentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of the audit trail on the request path, with auditing off and on.
+ * <p>
+ * updateStudent and createAndDeleteStudent are the service calls as requests make them; the difference
+ * between the two settings is the whole latency the audit trail adds, since the writing happens on the
+ * audit writer thread. record measures the recording alone: one serialization and one ring buffer slot,
+ * sustained for as long as the writer keeps up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditTrailBenchmark {
+
+    private static final int STUDENTS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean audit;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private AuditTrail auditTrail;
+    private Student student;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = EmbeddedApplication.start("--audit.enabled=" + audit);
+        studentService = context.getBean(StudentService.class);
+        auditTrail = context.getBean(AuditTrail.class);
+
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 1; i <= STUDENTS; i++) {
+            students.add(new Student(null, "Firstname", "Lastname", "student" + i + "@example.com"));
+        }
+        context.getBean(StudentRepository.class).saveAll(students);
+        student = new Student(1L, "Firstname", "Lastname", "student1@example.com");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(EmbeddedApplication.AUDIT_DIRECTORY);
+    }
+
+    @Benchmark
+    public Student updateStudent() throws Exception {
+        int id = ThreadLocalRandom.current().nextInt(1, STUDENTS + 1);
+        String firstname = ThreadLocalRandom.current().nextBoolean() ? "Firstname" : "Othername";
+        return studentService.updateStudent((long) id, new Student(null, firstname, "Lastname", "student" + id + "@example.com"));
+    }
+
+    @Benchmark
+    public void createAndDeleteStudent() throws Exception {
+        Student created = new Student(null, "Firstname", "Lastname", "new" + sequence.incrementAndGet() + "@example.com");
+        studentService.deleteStudent(studentService.createStudent(created).getId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void record() {
+        auditTrail.record("benchmark", AuditEntity.STUDENT, AuditAction.UPDATE, student.getId(), student);
+    }
+}
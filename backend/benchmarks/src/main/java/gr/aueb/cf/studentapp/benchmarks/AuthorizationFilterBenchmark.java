@@ -0,0 +1,68 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import gr.aueb.cf.studentapp.security.filters.JwtAuthorizationFilter;
+import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.security.util.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a whole pass of JwtAuthorizationFilter over a mock authenticated request,
+ * with and without the verified-token cache and in both authorization modes.
+ * The user lookup is served from memory, so the numbers exclude the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationFilterBenchmark {
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    @Param({"false", "true"})
+    public boolean tokenCache;
+
+    private JwtAuthorizationFilter filter;
+    private String authorizationHeader;
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(JwtVerificationBenchmark.SECRET, JwtVerificationBenchmark.EXPIRATION);
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(jwtUtil, tokenCache, 10000, new SimpleMeterRegistry());
+        UserDetailsService userDetailsService = username ->
+                new User(username, "", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        TokenVersionRegistry tokenVersionRegistry = new TokenVersionRegistry(null);
+        tokenVersionRegistry.update("admin", 1, 0);
+
+        filter = new JwtAuthorizationFilter(jwtUtil, verifiedTokenCache, userDetailsService, tokenVersionRegistry, stateless);
+        authorizationHeader = "Bearer " + jwtUtil.generateToken("admin", "ADMIN", 1, 0);
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/students");
+        request.addHeader("Authorization", authorizationHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
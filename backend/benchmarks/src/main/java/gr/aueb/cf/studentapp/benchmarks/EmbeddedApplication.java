@@ -0,0 +1,59 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.StudentManagementApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+/**
+ * Starts the application against an embedded H2 database, for benchmarks that need real beans.
+ */
+final class EmbeddedApplication {
+
+    /**
+     * Where the started applications write their audit log, rather than the working directory.
+     */
+    static final Path AUDIT_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "studentapp-benchmarks-audit");
+
+    private EmbeddedApplication() {
+    }
+
+    /**
+     * Start the application on a random port with an in-memory database.
+     *
+     * @param extraArgs additional command line arguments, such as feature toggles.
+     * @return the started application context.
+     */
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        return start(new Class<?>[0], extraArgs);
+    }
+
+    /**
+     * Start the application on a random port with an in-memory database and additional configuration.
+     *
+     * @param extraSources additional configuration classes, registered without component scanning.
+     * @param extraArgs additional command line arguments, such as feature toggles.
+     * @return the started application context.
+     */
+    static ConfigurableApplicationContext start(Class<?>[] extraSources, String... extraArgs) {
+        String[] args = {
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmarks;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--audit.directory=" + AUDIT_DIRECTORY
+        };
+        String[] allArgs = new String[args.length + extraArgs.length];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+        return new SpringApplicationBuilder(StudentManagementApplication.class).sources(extraSources).run(allArgs);
+    }
+}
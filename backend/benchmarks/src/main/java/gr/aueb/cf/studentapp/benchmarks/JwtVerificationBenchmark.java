@@ -0,0 +1,82 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.security.util.VerifiedToken;
+import gr.aueb.cf.studentapp.security.util.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of verifying a bearer token in JwtAuthorizationFilter
+ * before and after the single-parse verification pipeline, and with the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    static final String SECRET = "abcdefghijklmnopqrstuvwxyz1234567890abcdefghijklmnopqrstuvwxyz12";
+    static final long EXPIRATION = 3600000;
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache verifiedTokenCache;
+    private SecretKey secretKey;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, EXPIRATION);
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtil, true, 10000, new SimpleMeterRegistry());
+        secretKey = Keys.hmacShaKeyFor(Base64.getEncoder().encode(SECRET.getBytes()));
+        token = jwtUtil.generateToken("admin", "ADMIN", 1, 0);
+    }
+
+    /**
+     * The previous filter path: extractUsername, then validateToken, which parsed
+     * the token again for the username and a third time for the expiration.
+     */
+    @Benchmark
+    public boolean tripleParse() {
+        String username = legacyClaims().getSubject();
+        String again = legacyClaims().getSubject();
+        Date expiration = legacyClaims().getExpiration();
+        return username.equals(again) && !expiration.before(new Date());
+    }
+
+    /**
+     * The current filter path: one verification with the shared parser.
+     */
+    @Benchmark
+    public boolean singleParse() {
+        VerifiedToken verifiedToken = jwtUtil.verify(token);
+        return verifiedToken.getSubject() != null;
+    }
+
+    /**
+     * A repeat token served from the verified-token cache.
+     */
+    @Benchmark
+    public boolean cachedVerify() {
+        VerifiedToken verifiedToken = verifiedTokenCache.verify(token);
+        return verifiedToken.getSubject() != null;
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,53 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.security.LoginRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead the login rate limiter adds to an admitted login attempt,
+ * single-threaded and under contention. Limits are set high enough that every attempt is admitted,
+ * so the numbers cover the admitted path only; compare them with the milliseconds of a BCrypt verification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginRateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private LoginRateLimiter loginRateLimiter;
+    private String[] usernames;
+    private String[] clientAddresses;
+
+    @Setup
+    public void setUp() {
+        loginRateLimiter = new LoginRateLimiter(true, Integer.MAX_VALUE / 2, 1, Integer.MAX_VALUE / 2, 1,
+                100_000, 600, new SimpleMeterRegistry());
+        usernames = new String[KEYS];
+        clientAddresses = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            usernames[i] = "user" + i;
+            clientAddresses[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public long admitted() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        return loginRateLimiter.tryAcquire(usernames[i], clientAddresses[i]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long admittedContended() {
+        int i = ThreadLocalRandom.current().nextInt(16);
+        return loginRateLimiter.tryAcquire(usernames[i], clientAddresses[i]);
+    }
+}
@@ -0,0 +1,144 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.repository.StudentRepository;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load comparison of request handling on the Tomcat platform thread pool and on virtual threads.
+ * <p>
+ * Hundreds of concurrent clients page through students over HTTP. The embedded H2 database answers
+ * from memory, so every statement is delayed by dbLatencyMillis to stand in for the round trip to a
+ * networked MySQL server; the connection pool is sized above the Tomcat pool, so in platform mode the
+ * 200 request threads, not the database, cap throughput. Virtual mode requires Java 21.
+ * Throughput comes from the thrpt mode, and p99 from the sample mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(RequestThreadingBenchmark.CLIENTS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class RequestThreadingBenchmark {
+
+    static final int CLIENTS = 400;
+    private static final int STUDENTS = 1_000;
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"5"})
+    public int dbLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads require Java 21, running " + Runtime.version());
+        }
+        context = EmbeddedApplication.start(new Class<?>[]{DatabaseLatency.class},
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--server.tomcat.threads.max=200",
+                "--spring.datasource.hikari.maximum-pool-size=" + CLIENTS,
+                "--benchmark.db-latency-millis=" + dbLatencyMillis,
+                "--login.rate-limit.enabled=false",
+                "--db.instrumentation.enabled=false");
+
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 1; i <= STUDENTS; i++) {
+            students.add(new Student(null, "Firstname", "Lastname", "student" + i + "@example.com"));
+        }
+        context.getBean(StudentRepository.class).saveAll(students);
+
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        post(base + "/api/users", "{\"username\":\"bench\",\"password\":\"secret1\",\"role\":\"ADMIN\"}");
+        Matcher token = TOKEN.matcher(post(base + "/api/login", "{\"username\":\"bench\",\"password\":\"secret1\"}"));
+        if (!token.find()) {
+            throw new IllegalStateException("Login failed");
+        }
+        request = HttpRequest.newBuilder(URI.create(base + "/api/students?limit=20"))
+                .header("Authorization", "Bearer " + token.group(1))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getStudentsPage() throws Exception {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    private String post(String uri, String json) throws Exception {
+        HttpRequest post = HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(post, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    /**
+     * Delays every statement by the configured latency, as a networked database would.
+     * Registered as an extra source rather than annotated, so component scanning never picks it up.
+     */
+    static class DatabaseLatency {
+
+        @Bean
+        static BeanPostProcessor databaseLatencyPostProcessor(@Value("${benchmark.db-latency-millis:0}") long latencyMillis) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource) || !"dataSource".equals(beanName) || latencyMillis == 0) {
+                        return bean;
+                    }
+                    return ProxyDataSourceBuilder.create(dataSource).listener(new QueryExecutionListener() {
+                        @Override
+                        public void beforeQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+                            try {
+                                Thread.sleep(latencyMillis);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+
+                        @Override
+                        public void afterQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+                        }
+                    }).build();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.studentapp.enums.Role;
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Jackson serialization of the Student and User lists returned by
+ * GET /api/students and GET /api/users, at different list sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Student> students;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        students = new ArrayList<>(size);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            students.add(new Student((long) i, "Firstname" + i, "Lastname" + i, "student" + i + "@example.com"));
+            User user = new User();
+            user.setId((long) i);
+            user.setUsername("user" + i);
+            user.setPassword("{bcrypt}$2a$10$abcdefghijklmnopqrstuv0123456789abcdefghijklmnopqrstu");
+            user.setRole(i % 10 == 0 ? Role.ADMIN : Role.USER);
+            users.add(user);
+        }
+    }
+
+    @Benchmark
+    public void students() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), students);
+    }
+
+    @Benchmark
+    public void users() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), users);
+    }
+}
@@ -0,0 +1,80 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.service.StudentRevisionClock;
+import gr.aueb.cf.studentapp.service.StudentSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures search latency of the in-memory student search index at a million synthetic students,
+ * for a selective name query, a two-term query, a short prefix query and a substring of an email domain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class StudentSearchBenchmark {
+
+    private static final String[] FIRSTNAMES = {"Alexandros", "Maria", "Nikos", "Eleni", "Giorgos", "Katerina",
+            "Dimitris", "Sofia", "Yannis", "Anna", "Kostas", "Ioanna", "Petros", "Christina", "Vasilis", "Despina"};
+    private static final String[] DOMAINS = {"example.com", "aueb.gr", "uoa.gr", "mail.com"};
+
+    @Param({"1000000"})
+    public int size;
+
+    private StudentSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new StudentSearchIndex(new JdbcTemplate(), new StudentRevisionClock(new JdbcTemplate()), 2,
+                new SimpleMeterRegistry());
+        Random random = new Random(42);
+        List<Student> students = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            String firstname = FIRSTNAMES[random.nextInt(FIRSTNAMES.length)];
+            String lastname = randomName(random);
+            String email = firstname.toLowerCase() + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+            students.add(new Student((long) i, firstname, lastname, email));
+        }
+        index.putAll(students);
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 6 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    @Benchmark
+    public List<Student> selectiveTerm() {
+        return index.search("qwert", 20);
+    }
+
+    @Benchmark
+    public List<Student> twoTerms() {
+        return index.search("alexandros kl", 20);
+    }
+
+    @Benchmark
+    public List<Student> shortPrefix() {
+        return index.search("zq", 20);
+    }
+
+    @Benchmark
+    public List<Student> emailSubstring() {
+        return index.search("s12345", 20);
+    }
+}
@@ -0,0 +1,70 @@
+package gr.aueb.cf.studentapp.benchmarks;
+
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.repository.StudentRepository;
+import gr.aueb.cf.studentapp.service.StudentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks StudentService calls against the full application context on an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+    private static final int STUDENTS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = EmbeddedApplication.start();
+        studentService = context.getBean(StudentService.class);
+
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 1; i <= STUDENTS; i++) {
+            students.add(new Student(null, "Firstname", "Lastname", "student" + i + "@example.com"));
+        }
+        context.getBean(StudentRepository.class).saveAll(students);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Student getStudentById() throws Exception {
+        return studentService.getStudentById((long) ThreadLocalRandom.current().nextInt(1, STUDENTS + 1));
+    }
+
+    @Benchmark
+    public Student findStudentByEmail() throws Exception {
+        return studentService.findStudentByEmail("student" + ThreadLocalRandom.current().nextInt(1, STUDENTS + 1) + "@example.com");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Student> getAllStudents() {
+        return studentService.getAllStudents();
+    }
+
+    @Benchmark
+    public void createAndDeleteStudent() throws Exception {
+        Student student = new Student(null, "Firstname", "Lastname", "new" + sequence.incrementAndGet() + "@example.com");
+        studentService.deleteStudent(studentService.createStudent(student).getId());
+    }
+}
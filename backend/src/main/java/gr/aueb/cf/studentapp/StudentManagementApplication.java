@@ -2,17 +2,19 @@ package gr.aueb.cf.studentapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
 /**
  * The main class to launch the Student Management Application.
  * This is a Spring Boot application that starts the Student Management system.
  * It initializes the Spring Boot application context and allows for further configurations
  * such as setting up controllers, services and repositories for managing student data.
+ * R2DBC is only used by the reactive read API, which configures its own connection pool.
  *
  * @author Alexandros Chatzis
  * @version 1.0
  */
-@SpringBootApplication
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class StudentManagementApplication {
 
     /**
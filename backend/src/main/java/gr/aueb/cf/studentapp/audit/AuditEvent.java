@@ -0,0 +1,18 @@
+package gr.aueb.cf.studentapp.audit;
+
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+
+/**
+ * One audited change: who changed which record, how and when.
+ *
+ * @param timestamp the time of the change, in milliseconds since the epoch.
+ * @param actor the name of the authenticated user who made the change, or "anonymous".
+ * @param entity the kind of the changed record.
+ * @param action the change.
+ * @param entityId the ID of the changed record.
+ * @param detail the JSON state of the record after the change, or of the changed fields; null if there is none.
+ */
+public record AuditEvent(long timestamp, String actor, AuditEntity entity, AuditAction action, long entityId,
+                         String detail) {
+}
@@ -0,0 +1,45 @@
+package gr.aueb.cf.studentapp.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Reads the audit log back, in sequence order. Reading is safe while the application is writing:
+ * records appended meanwhile are either read complete or not at all.
+ */
+public class AuditLogReader {
+
+    private final Path directory;
+
+    /**
+     * Constructs an AuditLogReader.
+     *
+     * @param directory the directory of the audit log.
+     */
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the records from the given sequence on, skipping the segments that end before it.
+     *
+     * @param fromSequence the sequence of the first record to read; 1 reads the whole log.
+     * @param consumer the consumer of the records, in sequence order, returning false to stop reading.
+     * @throws IOException if the log cannot be read.
+     */
+    public void read(long fromSequence, Predicate<AuditRecord> consumer) throws IOException {
+        List<Path> segments = AuditSegment.list(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && AuditSegment.firstSequence(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            boolean more = AuditSegment.read(segments.get(i),
+                    record -> record.sequence() < fromSequence || consumer.test(record));
+            if (!more) {
+                return;
+            }
+        }
+    }
+}
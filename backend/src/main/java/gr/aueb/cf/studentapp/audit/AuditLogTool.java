@@ -0,0 +1,205 @@
+package gr.aueb.cf.studentapp.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Command line tool querying and replaying the audit log, printing one JSON object per line.
+ * <p>
+ * By default it prints the matching events. With --state it replays them instead and prints the
+ * resulting state of every record still present, so --until shows the records as they were at that time.
+ * <pre>
+ * AuditLogTool &lt;directory&gt; [--entity student|user] [--id n] [--action create|update|delete]
+ *              [--actor name] [--since time] [--until time] [--from-sequence n] [--limit n] [--state]
+ * </pre>
+ * Times are ISO-8601 instants, such as 2026-10-18T09:30:00Z, or dates, meaning midnight UTC;
+ * --since is inclusive and --until exclusive.
+ */
+public class AuditLogTool {
+
+    private static final String USAGE = """
+            Usage: AuditLogTool <directory> [--entity student|user] [--id n] [--action create|update|delete]
+                                [--actor name] [--since time] [--until time] [--from-sequence n] [--limit n] [--state]""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PrintStream out;
+    private Path directory;
+    private Predicate<AuditRecord> filter = record -> true;
+    private long fromSequence = 1;
+    private long limit = Long.MAX_VALUE;
+    private boolean state;
+
+    private AuditLogTool(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Query or replay the audit log.
+     *
+     * @param args the audit log directory and the options described above.
+     * @throws IOException if the audit log cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        AuditLogTool tool = new AuditLogTool(System.out);
+        try {
+            tool.parse(args);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        tool.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--state")) {
+                state = true;
+                continue;
+            }
+            if (!option.startsWith("--")) {
+                if (directory != null) {
+                    throw new IllegalArgumentException("Unexpected argument: " + option);
+                }
+                directory = Path.of(option);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--entity" -> {
+                    AuditEntity entity = AuditEntity.valueOf(value.toUpperCase());
+                    and(record -> record.event().entity() == entity);
+                }
+                case "--id" -> {
+                    long id = Long.parseLong(value);
+                    and(record -> record.event().entityId() == id);
+                }
+                case "--action" -> {
+                    AuditAction action = AuditAction.valueOf(value.toUpperCase());
+                    and(record -> record.event().action() == action);
+                }
+                case "--actor" -> and(record -> record.event().actor().equals(value));
+                case "--since" -> {
+                    long since = parseTime(value);
+                    and(record -> record.event().timestamp() >= since);
+                }
+                case "--until" -> {
+                    long until = parseTime(value);
+                    and(record -> record.event().timestamp() < until);
+                }
+                case "--from-sequence" -> fromSequence = Long.parseLong(value);
+                case "--limit" -> limit = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("Missing audit log directory");
+        }
+    }
+
+    private void run() throws IOException {
+        AuditLogReader reader = new AuditLogReader(directory);
+        long[] matched = {0};
+        if (!state) {
+            reader.read(fromSequence, record -> {
+                if (filter.test(record)) {
+                    out.println(toJson(record));
+                    return ++matched[0] < limit;
+                }
+                return true;
+            });
+            return;
+        }
+
+        Map<AuditEntity, TreeMap<Long, ObjectNode>> states = new EnumMap<>(AuditEntity.class);
+        reader.read(fromSequence, record -> {
+            if (filter.test(record)) {
+                replay(states.computeIfAbsent(record.event().entity(), entity -> new TreeMap<>()), record.event());
+                return ++matched[0] < limit;
+            }
+            return true;
+        });
+        states.forEach((entity, records) -> records.forEach((id, recordState) -> {
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("entity", entity.name());
+            line.put("entityId", id);
+            line.set("state", recordState);
+            out.println(line);
+        }));
+    }
+
+    /**
+     * Apply one event to the replayed states. Updates only overwrite the fields they carry with a
+     * value, since bulk updates record the changed fields alone, with null for those left unchanged.
+     */
+    private void replay(TreeMap<Long, ObjectNode> records, AuditEvent event) {
+        switch (event.action()) {
+            case CREATE -> records.put(event.entityId(), detail(event));
+            case UPDATE -> {
+                ObjectNode changes = detail(event);
+                ObjectNode current = records.computeIfAbsent(event.entityId(), id -> objectMapper.createObjectNode());
+                changes.fields().forEachRemaining(field -> {
+                    if (!field.getValue().isNull()) {
+                        current.set(field.getKey(), field.getValue());
+                    }
+                });
+            }
+            case DELETE -> records.remove(event.entityId());
+        }
+    }
+
+    private ObjectNode toJson(AuditRecord record) {
+        AuditEvent event = record.event();
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("sequence", record.sequence());
+        line.put("timestamp", Instant.ofEpochMilli(event.timestamp()).toString());
+        line.put("actor", event.actor());
+        line.put("entity", event.entity().name());
+        line.put("action", event.action().name());
+        line.put("entityId", event.entityId());
+        line.set("detail", event.detail() == null ? null : detail(event));
+        return line;
+    }
+
+    private ObjectNode detail(AuditEvent event) {
+        if (event.detail() == null) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            JsonNode detail = objectMapper.readTree(event.detail());
+            return detail instanceof ObjectNode objectNode ? objectNode : objectMapper.createObjectNode();
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed audit detail at entity " + event.entityId(), e);
+        }
+    }
+
+    private void and(Predicate<AuditRecord> condition) {
+        filter = filter.and(condition);
+    }
+
+    private static long parseTime(String value) {
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+        return Instant.parse(value).toEpochMilli();
+    }
+}
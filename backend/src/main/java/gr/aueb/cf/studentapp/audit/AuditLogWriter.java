@@ -0,0 +1,168 @@
+package gr.aueb.cf.studentapp.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The single writer of the audit log, draining the ring buffer on its own thread.
+ * <p>
+ * Events are appended in batches to the current memory-mapped segment, which starts a new segment
+ * once it is full. Appended events are in the page cache right away, so they survive a crash of the
+ * application; they are forced to the storage device every force interval, which bounds what a crash
+ * of the machine can lose. On startup, appending resumes after the last complete record of the newest segment.
+ */
+class AuditLogWriter implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLogWriter.class);
+    private static final int IDLE_SPINS = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AuditRingBuffer ringBuffer;
+    private final Path directory;
+    private final int segmentSize;
+    private final int batchSize;
+    private final long forceIntervalNanos;
+    private final ByteBuffer scratch;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter segmentCounter;
+    private final Timer forceTimer;
+
+    private AuditSegment segment;
+    private int forcedPosition;
+    private long lastForce = System.nanoTime();
+    private boolean failing;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs an AuditLogWriter and opens the newest segment of the audit log, or creates the first one.
+     *
+     * @param ringBuffer the buffer the events are drained from.
+     * @param directory the directory of the audit log.
+     * @param segmentSize the size of each segment file, in bytes.
+     * @param maxEventBytes the maximum encoded size of an event; larger events are dropped.
+     * @param batchSize the maximum number of events appended between checks for a due force.
+     * @param forceIntervalMillis how often appended events are forced to the storage device, in milliseconds.
+     * @param droppedCounter the counter of events that could not be written.
+     * @param meterRegistry the registry the writer metrics are published to.
+     * @throws IOException if the directory or the segment cannot be opened.
+     */
+    AuditLogWriter(AuditRingBuffer ringBuffer, Path directory, int segmentSize, int maxEventBytes, int batchSize,
+                   long forceIntervalMillis, Counter droppedCounter, MeterRegistry meterRegistry) throws IOException {
+        this.ringBuffer = ringBuffer;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        this.forceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(forceIntervalMillis);
+        // Sized for the largest event accepted, not for a whole segment, which may be tens of megabytes
+        this.scratch = ByteBuffer.allocate(Math.min(maxEventBytes, AuditSegment.maximumPayload(segmentSize)));
+        this.droppedCounter = droppedCounter;
+        this.writtenCounter = Counter.builder("audit.events.written")
+                .description("Audit events appended to the audit log")
+                .register(meterRegistry);
+        this.segmentCounter = Counter.builder("audit.segments.created")
+                .description("Audit log segments created")
+                .register(meterRegistry);
+        this.forceTimer = Timer.builder("audit.force")
+                .description("Time to force appended audit events to the storage device")
+                .register(meterRegistry);
+
+        Files.createDirectories(directory);
+        List<Path> segments = AuditSegment.list(directory);
+        this.segment = segments.isEmpty()
+                ? createSegment(1)
+                : AuditSegment.openForAppend(segments.get(segments.size() - 1));
+        this.forcedPosition = segment.position();
+        LOGGER.info("Audit log {} opened at sequence {}", segment.path(), segment.nextSequence());
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        // After stop, keep going until the events published before it are written
+        while (running || ringBuffer.size() > 0) {
+            int drained = ringBuffer.drain(this::append, batchSize);
+            if (drained > 0) {
+                idle = 0;
+            } else if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            if (System.nanoTime() - lastForce >= forceIntervalNanos) {
+                force();
+            }
+        }
+        force();
+    }
+
+    /**
+     * Stop once the events already in the buffer are written.
+     */
+    void stop() {
+        running = false;
+    }
+
+    private void append(AuditEvent event) {
+        try {
+            if (segment.append(event, scratch) < 0) {
+                if (segment.isEmpty()) {
+                    throw new BufferOverflowException(); // Larger than a whole segment
+                }
+                rotate();
+                segment.append(event, scratch);
+            }
+            writtenCounter.increment();
+            failing = false;
+        } catch (BufferOverflowException e) {
+            // Larger than the scratch buffer, or than a whole segment
+            droppedCounter.increment();
+        } catch (IOException | UncheckedIOException e) {
+            droppedCounter.increment();
+            // Logged once when writing starts failing, not for every event dropped after it
+            if (!failing) {
+                failing = true;
+                LOGGER.warn("Audit events cannot be written, dropping them until writing succeeds again", e);
+            }
+        }
+    }
+
+    /**
+     * Forces the full segment and continues in a new one, starting at the next sequence.
+     */
+    private void rotate() throws IOException {
+        force();
+        segment = createSegment(segment.nextSequence());
+        forcedPosition = segment.position();
+    }
+
+    private AuditSegment createSegment(long firstSequence) throws IOException {
+        AuditSegment created = AuditSegment.create(directory, firstSequence, segmentSize);
+        segmentCounter.increment();
+        return created;
+    }
+
+    private void force() {
+        int position = segment.position();
+        if (position > forcedPosition) {
+            long start = System.nanoTime();
+            segment.force(forcedPosition, position);
+            forceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            forcedPosition = position;
+        }
+        lastForce = System.nanoTime();
+    }
+}
@@ -0,0 +1,11 @@
+package gr.aueb.cf.studentapp.audit;
+
+/**
+ * An audit event as read back from the audit log, with the sequence number it was written under.
+ * Sequence numbers start at 1 and increase by one with every event, across segments and restarts.
+ *
+ * @param sequence the sequence number of the event.
+ * @param event the event.
+ */
+public record AuditRecord(long sequence, AuditEvent event) {
+}
@@ -0,0 +1,106 @@
+package gr.aueb.cf.studentapp.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, lock-free ring buffer handing audit events from any number of request threads to the
+ * single audit writer thread.
+ * <p>
+ * A producer claims the next sequence with one compare-and-set, stores its event in the slot of that
+ * sequence and then publishes the slot by writing the sequence into it. The consumer reads slots in
+ * sequence order for as long as they are published, and releases them all at once by advancing its
+ * own sequence. Producers never wait for each other, and never wait at all unless the buffer is full.
+ */
+class AuditRingBuffer {
+
+    private final AuditEvent[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    /**
+     * Constructs an AuditRingBuffer.
+     *
+     * @param capacity the minimum number of events the buffer holds, rounded up to a power of two.
+     */
+    AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AuditEvent[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1); // No slot holds sequence 0 yet
+        }
+    }
+
+    /**
+     * Add an event, unless the buffer is full.
+     *
+     * @param event the event.
+     * @return true if the event was added, false if the buffer is full.
+     */
+    boolean offer(AuditEvent event) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        slots[index] = event;
+        // The volatile write makes the event visible to the consumer, which checks this sequence first
+        published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * Pass the published events to the consumer, in the order they were claimed. Only the single
+     * consumer thread may call this.
+     *
+     * @param consumer the consumer of the events.
+     * @param maximum the maximum number of events to pass on.
+     * @return the number of events passed on.
+     */
+    int drain(Consumer<AuditEvent> consumer, int maximum) {
+        long next = consumed;
+        int drained = 0;
+        while (drained < maximum) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                break; // Not claimed yet, or claimed and still being written
+            }
+            AuditEvent event = slots[index];
+            slots[index] = null;
+            consumer.accept(event);
+            next++;
+            drained++;
+        }
+        if (drained > 0) {
+            consumed = next; // Releases the slots to the producers
+        }
+        return drained;
+    }
+
+    /**
+     * The number of events waiting to be drained, including those still being written.
+     *
+     * @return the number of events in the buffer.
+     */
+    long size() {
+        return claimed.get() - consumed;
+    }
+
+    /**
+     * The number of events the buffer holds.
+     *
+     * @return the capacity.
+     */
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,334 @@
+package gr.aueb.cf.studentapp.audit;
+
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * One append-only, memory-mapped segment file of the audit log.
+ * <p>
+ * A segment is created at its full size and named after the sequence of its first event, so segments
+ * sort in event order. It starts with a header (magic, format version, first sequence), followed by
+ * records of the form [length][CRC32C][payload]. The length is written last, so a record is either
+ * complete or reads as the end of the segment; a record cut short by a crash fails its checksum and
+ * ends the segment as well.
+ */
+class AuditSegment {
+
+    /**
+     * The size of the segment header: magic, version and first sequence.
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * The size of the record header: payload length and checksum.
+     */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int MAGIC = 0x41554454; // "AUDT"
+    private static final int VERSION = 1;
+    private static final Pattern FILE_NAME = Pattern.compile("audit-(\\d{20})\\.log");
+
+    private final Path path;
+    private final long firstSequence;
+    private final MappedByteBuffer buffer;
+    private long nextSequence;
+
+    private AuditSegment(Path path, long firstSequence, MappedByteBuffer buffer, long nextSequence) {
+        this.path = path;
+        this.firstSequence = firstSequence;
+        this.buffer = buffer;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Create a new segment, mapped for writing.
+     *
+     * @param directory the directory of the audit log.
+     * @param firstSequence the sequence of the first event of the segment.
+     * @param size the size of the segment file, in bytes.
+     * @return the segment, positioned after its header.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    static AuditSegment create(Path directory, long firstSequence, int size) throws IOException {
+        Path path = directory.resolve(String.format("audit-%020d.log", firstSequence));
+        MappedByteBuffer buffer = map(path, size, StandardOpenOption.CREATE_NEW);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(firstSequence);
+        return new AuditSegment(path, firstSequence, buffer, firstSequence);
+    }
+
+    /**
+     * Open an existing segment for appending, after its last complete record.
+     * Whatever follows that record, such as a record cut short by a crash, is cleared.
+     *
+     * @param path the segment file.
+     * @return the segment, positioned after its last complete record.
+     * @throws IOException if the file cannot be mapped or is not an audit segment.
+     */
+    static AuditSegment openForAppend(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path, (int) Files.size(path));
+        long firstSequence = readHeader(buffer, path);
+        long[] last = {firstSequence - 1};
+        scan(buffer, record -> {
+            last[0] = record.sequence();
+            return true;
+        });
+
+        int end = buffer.position();
+        if (end + Integer.BYTES <= buffer.limit() && buffer.getInt(end) != 0) {
+            for (int i = end; i < buffer.limit(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+        return new AuditSegment(path, firstSequence, buffer, last[0] + 1);
+    }
+
+    /**
+     * Read the complete records of a segment file.
+     *
+     * @param path the segment file.
+     * @param consumer the consumer of the records, in sequence order, returning false to stop reading.
+     * @return false if the consumer stopped reading, true if every record was read.
+     * @throws IOException if the file cannot be read or is not an audit segment.
+     */
+    static boolean read(Path path, Predicate<AuditRecord> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        readHeader(buffer, path);
+        return scan(buffer, consumer);
+    }
+
+    /**
+     * List the segment files of an audit log directory.
+     *
+     * @param directory the directory of the audit log.
+     * @return the segment files, in event order.
+     * @throws IOException if the directory cannot be listed.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * The sequence of the first event of a segment file, from its name.
+     *
+     * @param path the segment file.
+     * @return the first sequence.
+     */
+    static long firstSequence(Path path) {
+        Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not an audit segment: " + path);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Append an event, if it fits.
+     *
+     * @param event the event.
+     * @param scratch a buffer for encoding the event, which bounds the size of the record.
+     * @return the sequence of the appended event, or -1 if the segment is full.
+     * @throws java.nio.BufferOverflowException if the encoded event does not fit in the scratch buffer.
+     */
+    long append(AuditEvent event, ByteBuffer scratch) {
+        scratch.clear();
+        encode(nextSequence, event, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+        int position = buffer.position();
+        // Keep room for the zero length that marks the end of the segment
+        if (position + RECORD_HEADER_SIZE + length + Integer.BYTES > buffer.limit()) {
+            return -1;
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(scratch.duplicate());
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.put(scratch);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, length); // Last, so that readers never see a partial record
+        return nextSequence++;
+    }
+
+    /**
+     * Flush the given range of the segment to the storage device.
+     *
+     * @param from the offset of the first byte to flush.
+     * @param to the offset after the last byte to flush.
+     */
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    /**
+     * The offset the next record will be written at.
+     *
+     * @return the write position.
+     */
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * The sequence the next appended event will get.
+     *
+     * @return the next sequence.
+     */
+    long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * The sequence of the first event of the segment.
+     *
+     * @return the first sequence.
+     */
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * Check whether no event has been appended to the segment yet.
+     *
+     * @return true if the segment holds no events.
+     */
+    boolean isEmpty() {
+        return nextSequence == firstSequence;
+    }
+
+    /**
+     * The segment file.
+     *
+     * @return the path of the segment.
+     */
+    Path path() {
+        return path;
+    }
+
+    /**
+     * The largest record an event may be encoded to, so that it always fits an empty segment.
+     *
+     * @param segmentSize the size of a segment, in bytes.
+     * @return the maximum payload length, in bytes.
+     */
+    static int maximumPayload(int segmentSize) {
+        return segmentSize - HEADER_SIZE - RECORD_HEADER_SIZE - Integer.BYTES;
+    }
+
+    private static MappedByteBuffer map(Path path, int size, StandardOpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, Stream.concat(
+                Stream.of(StandardOpenOption.READ, StandardOpenOption.WRITE), Stream.of(options))
+                .toArray(StandardOpenOption[]::new))) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static long readHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an audit segment: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported audit segment version " + version + ": " + path);
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * Read records from the current position until the end marker or the first incomplete record,
+     * or until the consumer returns false, leaving the buffer positioned after the last record read.
+     */
+    private static boolean scan(ByteBuffer buffer, Predicate<AuditRecord> consumer) {
+        CRC32C crc = new CRC32C();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int position = buffer.position();
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.limit() - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(position + RECORD_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            AuditRecord record;
+            try {
+                record = decode(payload);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                break;
+            }
+            buffer.position(position + RECORD_HEADER_SIZE + length);
+            if (!consumer.test(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void encode(long sequence, AuditEvent event, ByteBuffer buffer) {
+        buffer.putLong(sequence);
+        buffer.putLong(event.timestamp());
+        buffer.put((byte) event.entity().ordinal());
+        buffer.put((byte) event.action().ordinal());
+        buffer.putLong(event.entityId());
+        byte[] actor = event.actor().getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) actor.length);
+        buffer.put(actor);
+        if (event.detail() == null) {
+            buffer.putInt(-1);
+        } else {
+            byte[] detail = event.detail().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(detail.length);
+            buffer.put(detail);
+        }
+    }
+
+    private static AuditRecord decode(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        AuditEntity entity = AuditEntity.values()[buffer.get()];
+        AuditAction action = AuditAction.values()[buffer.get()];
+        long entityId = buffer.getLong();
+        byte[] actor = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(actor);
+        int detailLength = buffer.getInt();
+        String detail = null;
+        if (detailLength >= 0) {
+            byte[] bytes = new byte[detailLength];
+            buffer.get(bytes);
+            detail = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new AuditRecord(sequence, new AuditEvent(timestamp, new String(actor, StandardCharsets.UTF_8),
+                entity, action, entityId, detail));
+    }
+}
@@ -0,0 +1,232 @@
+package gr.aueb.cf.studentapp.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of every creation, update and deletion of students and users.
+ * <p>
+ * Recording a change costs the request thread one JSON serialization and one slot in a lock-free ring
+ * buffer; the event is handed over once the current transaction commits, so rolled back changes are
+ * never audited. A single writer thread appends the events in batches to memory-mapped segment files,
+ * see {@link AuditLogWriter}, which {@link AuditLogTool} reads back. Only when the writer falls a whole
+ * buffer behind does a request thread wait, for at most the configured time, before its event is dropped.
+ */
+@Component
+public class AuditTrail {
+
+    /**
+     * The actor of changes made without an authenticated user, such as registration.
+     */
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final int FULL_SPINS = 100;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final AuditRingBuffer ringBuffer;
+    private final AuditLogWriter writer;
+    private final Thread writerThread;
+    private final Counter fullCounter;
+    private final Counter droppedCounter;
+
+    /**
+     * Constructs an AuditTrail, opens the audit log and starts the writer thread, unless auditing is disabled.
+     *
+     * @param objectMapper mapper serializing the details of the changes.
+     * @param enabled whether to audit changes.
+     * @param directory the directory of the audit log.
+     * @param bufferSize the number of events waiting to be written before request threads have to wait.
+     * @param batchSize the maximum number of events the writer appends between checks for a due force.
+     * @param segmentSizeMb the size of each segment file, in megabytes.
+     * @param maxEventBytes the maximum encoded size of an event, in bytes; larger events are dropped.
+     * @param forceIntervalMillis how often written events are forced to the storage device, in milliseconds.
+     * @param maxWaitMillis how long a request thread waits for room in a full buffer before dropping its event.
+     * @param meterRegistry the registry the audit metrics are published to.
+     */
+    public AuditTrail(ObjectMapper objectMapper,
+                      @Value("${audit.enabled:true}") boolean enabled,
+                      @Value("${audit.directory:audit}") String directory,
+                      @Value("${audit.buffer-size:65536}") int bufferSize,
+                      @Value("${audit.batch-size:1024}") int batchSize,
+                      @Value("${audit.segment-size-mb:64}") int segmentSizeMb,
+                      @Value("${audit.max-event-bytes:65536}") int maxEventBytes,
+                      @Value("${audit.force-interval-millis:1000}") long forceIntervalMillis,
+                      @Value("${audit.max-wait-millis:1000}") long maxWaitMillis,
+                      MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.ringBuffer = new AuditRingBuffer(enabled ? bufferSize : 2);
+        this.fullCounter = Counter.builder("audit.buffer.full")
+                .description("Audit events that had to wait for room in the buffer")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("audit.events.dropped")
+                .description("Audit events that could not be written")
+                .register(meterRegistry);
+        Gauge.builder("audit.buffer.size", ringBuffer, AuditRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            this.writer = null;
+            this.writerThread = null;
+            return;
+        }
+        try {
+            this.writer = new AuditLogWriter(ringBuffer, Path.of(directory), segmentSizeMb * 1024 * 1024,
+                    maxEventBytes, batchSize, forceIntervalMillis, droppedCounter, meterRegistry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the audit log in " + directory, e);
+        }
+        this.writerThread = new Thread(writer, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Audit a change made by the current user, once the current transaction commits.
+     *
+     * @param entity the kind of the changed record.
+     * @param action the change.
+     * @param entityId the ID of the changed record.
+     * @param detail the state of the record after the change, or the changed fields, serialized to JSON; may be null.
+     */
+    public void record(AuditEntity entity, AuditAction action, long entityId, Object detail) {
+        record(currentActor(), entity, action, entityId, detail);
+    }
+
+    /**
+     * Audit a change made by the given user, once the current transaction commits.
+     *
+     * @param actor the name of the user who made the change.
+     * @param entity the kind of the changed record.
+     * @param action the change.
+     * @param entityId the ID of the changed record.
+     * @param detail the state of the record after the change, or the changed fields, serialized to JSON; may be null.
+     */
+    public void record(String actor, AuditEntity entity, AuditAction action, long entityId, Object detail) {
+        if (!enabled) {
+            return;
+        }
+        // Serialized now, so later changes to the object do not leak into the audit log
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), actor, entity, action, entityId, toJson(detail));
+        afterCommit(() -> publish(event, System.nanoTime() + maxWaitNanos));
+    }
+
+    /**
+     * Audit the same change to many records made by the current user, such as a bulk operation,
+     * once the current transaction commits.
+     *
+     * @param entity the kind of the changed records.
+     * @param action the change.
+     * @param entityIds the IDs of the changed records.
+     * @param detail the changed fields, serialized to JSON; may be null.
+     */
+    public void record(AuditEntity entity, AuditAction action, long[] entityIds, Object detail) {
+        if (!enabled || entityIds.length == 0) {
+            return;
+        }
+        String actor = currentActor();
+        String json = toJson(detail);
+        long timestamp = System.currentTimeMillis();
+        afterCommit(() -> {
+            // One deadline for the whole operation, so a full buffer delays it by the maximum wait at most once
+            long deadline = System.nanoTime() + maxWaitNanos;
+            for (long entityId : entityIds) {
+                publish(new AuditEvent(timestamp, actor, entity, action, entityId, json), deadline);
+            }
+        });
+    }
+
+    /**
+     * Stops the writer once every event already recorded is written and forced to the storage device.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        writer.stop();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands an event to the writer, waiting for room in a full buffer until the deadline has passed.
+     */
+    private void publish(AuditEvent event, long deadline) {
+        if (ringBuffer.offer(event)) {
+            return;
+        }
+        // The writer is a whole buffer behind: wait for it rather than lose the event, but not forever
+        fullCounter.increment();
+        for (int spins = 0; !ringBuffer.offer(event); spins++) {
+            if (System.nanoTime() - deadline >= 0 || !writerThread.isAlive()) {
+                droppedCounter.increment();
+                return;
+            }
+            if (spins < FULL_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        return authentication.getName();
+    }
+
+    private String toJson(Object detail) {
+        if (detail == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(detail);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
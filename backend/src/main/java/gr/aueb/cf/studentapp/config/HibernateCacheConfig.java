@@ -0,0 +1,88 @@
+package gr.aueb.cf.studentapp.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import gr.aueb.cf.studentapp.model.Student;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Configuration class for the Hibernate second-level cache.
+ * Cached entities and natural-id lookups are kept in local Caffeine caches behind the JCache API,
+ * so repeated reads of the same student are served from memory. Hibernate updates and invalidates
+ * the cached entries itself when students are saved or deleted through JPA.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * Creates the JCache manager holding the second-level cache regions.
+     * Each region is bounded in size, expires entries after the configured time to live,
+     * and publishes its hit and miss statistics as metrics.
+     *
+     * @param maximumSize the maximum number of entries per region.
+     * @param timeToLiveSeconds how long an entry stays in a region, in seconds.
+     * @param expireAfter "write" to expire entries a fixed time after they are cached,
+     *                    or "access" to expire them a fixed time after they were last read.
+     * @param meterRegistry the registry the cache statistics are published to.
+     * @return the cache manager.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${students.cache.maximum-size:10000}") long maximumSize,
+                                              @Value("${students.cache.ttl-seconds:600}") long timeToLiveSeconds,
+                                              @Value("${students.cache.expire-after:write}") String expireAfter,
+                                              MeterRegistry meterRegistry) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        OptionalLong timeToLive = OptionalLong.of(Duration.ofSeconds(timeToLiveSeconds).toNanos());
+        switch (expireAfter) {
+            case "write" -> configuration.setExpireAfterWrite(timeToLive);
+            case "access" -> configuration.setExpireAfterAccess(timeToLive);
+            default -> throw new IllegalArgumentException("Invalid students.cache.expire-after: " + expireAfter);
+        }
+        configuration.setStatisticsEnabled(true);
+
+        for (String region : new String[]{Student.CACHE_REGION, Student.EMAIL_CACHE_REGION}) {
+            if (cacheManager.getCache(region) != null) {
+                cacheManager.destroyCache(region);
+            }
+            Cache<Object, Object> cache = cacheManager.createCache(region, configuration);
+            JCacheMetrics.monitor(meterRegistry, cache);
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Points Hibernate at the second-level cache regions, or turns the cache off.
+     *
+     * @param enabled whether the second-level cache is used at all.
+     * @param cacheManager the cache manager holding the regions.
+     * @return the customizer adding the cache settings to the Hibernate properties.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(@Value("${students.cache.enabled:true}") boolean enabled,
+                                                                    CacheManager cacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", enabled);
+            if (enabled) {
+                properties.put("hibernate.cache.region.factory_class", "jcache");
+                properties.put("hibernate.javax.cache.cache_manager", cacheManager);
+                properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            }
+        };
+    }
+}
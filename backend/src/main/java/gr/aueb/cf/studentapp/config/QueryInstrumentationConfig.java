@@ -0,0 +1,70 @@
+package gr.aueb.cf.studentapp.config;
+
+import gr.aueb.cf.studentapp.instrumentation.QueryInstrumentation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration class for the database instrumentation.
+ * The data source used by JPA and JDBC is wrapped in a JDBC proxy reporting every statement and
+ * every row read to {@link QueryInstrumentation}, and every Spring Data repository is advised so that
+ * statements are attributed to the repository method that issued them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryInstrumentationConfig {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * Wraps the data source in the JDBC proxy. Static, and resolving the instrumentation lazily,
+     * so that post-processing does not initialize the metrics infrastructure early.
+     *
+     * @param queryInstrumentation the listener receiving the statements and rows.
+     * @return the post-processor.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceInstrumentationPostProcessor(ObjectProvider<QueryInstrumentation> queryInstrumentation) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && DATA_SOURCE_BEAN.equals(beanName)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(DATA_SOURCE_BEAN)
+                            .listener(queryInstrumentation.getObject())
+                            .proxyResultSet()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Advises every Spring Data repository with the interceptor recording the current repository method.
+     *
+     * @param queryInstrumentation the instrumentation providing the interceptor.
+     * @return the post-processor.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryInstrumentationPostProcessor(ObjectProvider<QueryInstrumentation> queryInstrumentation) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(queryInstrumentation.getObject()
+                                    .repositoryMethodInterceptor(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
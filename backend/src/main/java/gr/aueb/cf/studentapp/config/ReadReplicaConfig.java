@@ -0,0 +1,96 @@
+package gr.aueb.cf.studentapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class routing read-only transactions to read replicas.
+ * Methods marked {@code @Transactional(readOnly = true)} read from a replica pool; every other
+ * transaction uses the primary. Spring Data repository reads are read-only transactions of their own,
+ * so a repository read called outside a read-write transaction goes to a replica too: services that
+ * read before they write do both in one read-write transaction. Each pool publishes its
+ * Hikari metrics tagged with its route name, "primary" or "replica-N".
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    /**
+     * Creates the pools of the primary and the replicas.
+     * The primary is configured by the standard spring.datasource properties. Replicas share its
+     * driver, are opened read-only, and give up on a connection quickly so reads fall back to the
+     * primary instead of waiting on a replica that is down.
+     *
+     * @param properties the spring.datasource properties of the primary.
+     * @param urls the JDBC URLs of the replicas, comma-separated.
+     * @param username the database user of the replicas.
+     * @param password the password of the replica user.
+     * @param maximumPoolSize the maximum number of connections per replica.
+     * @param connectionTimeoutMillis how long to wait for a replica connection, in milliseconds.
+     * @param readYourWritesMillis how long a user reads from the primary after committing a write, in milliseconds.
+     * @param maximumWriters the maximum number of users tracked within the read-your-writes window.
+     * @param downMillis how long a replica that failed to provide a connection is skipped, in milliseconds.
+     * @param meterRegistry the registry the pool and routing metrics are published to.
+     * @return the data source for read-only connections, which also owns the pools.
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             @Value("${datasource.replicas.urls}") List<String> urls,
+                                                             @Value("${datasource.replicas.username:${spring.datasource.username}}") String username,
+                                                             @Value("${datasource.replicas.password:${spring.datasource.password}}") String password,
+                                                             @Value("${datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                                             @Value("${datasource.replicas.connection-timeout-millis:1000}") long connectionTimeoutMillis,
+                                                             @Value("${datasource.replicas.read-your-writes-millis:5000}") long readYourWritesMillis,
+                                                             @Value("${datasource.replicas.maximum-writers:10000}") long maximumWriters,
+                                                             @Value("${datasource.replicas.down-millis:10000}") long downMillis,
+                                                             MeterRegistry meterRegistry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        primary.setMetricRegistry(meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setConnectionTimeout(connectionTimeoutMillis);
+            replica.setInitializationFailTimeout(-1); // Start even if a replica is down
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, Duration.ofMillis(readYourWritesMillis),
+                maximumWriters, Duration.ofMillis(downMillis), meterRegistry);
+    }
+
+    /**
+     * Creates the data source used by JPA and JDBC. Physical connections are fetched lazily, on the
+     * first statement, when the read-only flag of the transaction is known.
+     *
+     * @param routingDataSource the data source for read-only connections.
+     * @return the data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource.getWriteDataSource());
+        dataSource.setReadOnlyDataSource(routingDataSource);
+        return dataSource;
+    }
+}
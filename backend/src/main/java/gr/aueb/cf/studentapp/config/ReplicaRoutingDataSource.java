@@ -0,0 +1,177 @@
+package gr.aueb.cf.studentapp.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Data source for read-only connections, spreading them round-robin over the replica pools.
+ * <p>
+ * A user who committed a write recently reads from the primary until the read-your-writes window
+ * has passed, so they never see a replica that has not caught up with their own change yet.
+ * A replica that cannot hand out a connection is skipped for a while, and the primary is used when none can.
+ * Connections for writes are handed out by {@link #getWriteDataSource()}, which tracks the writers.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final DataSource writeDataSource;
+    private final Cache<String, Boolean> recentWriters;
+    private final long downNanos;
+    private final AtomicLongArray downUntil;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter primaryReads;
+    private final List<Counter> replicaReads = new ArrayList<>();
+    private final Counter replicaFailures;
+
+    /**
+     * Constructs a ReplicaRoutingDataSource and registers its routing metrics.
+     *
+     * @param primary the pool of the primary database.
+     * @param replicas the pools of the replicas, in the order of the route names "replica-1", "replica-2", ...
+     * @param readYourWritesWindow how long a user reads from the primary after committing a write.
+     * @param maximumWriters the maximum number of users tracked within the read-your-writes window.
+     * @param downTime how long a replica that failed to provide a connection is skipped.
+     * @param meterRegistry the registry the routing counters are published to.
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    Duration readYourWritesWindow, long maximumWriters, Duration downTime,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.writeDataSource = new WriteDataSource(primary);
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maximumWriters)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+        this.downNanos = downTime.toNanos();
+        this.downUntil = new AtomicLongArray(this.replicas.size());
+        long now = System.nanoTime();
+        for (int i = 0; i < this.replicas.size(); i++) {
+            downUntil.set(i, now); // nanoTime may be negative, so 0 is not a safe "never down"
+        }
+
+        this.primaryReads = readCounter("primary", meterRegistry);
+        for (int i = 1; i <= this.replicas.size(); i++) {
+            replicaReads.add(readCounter("replica-" + i, meterRegistry));
+        }
+        this.replicaFailures = Counter.builder("datasource.routing.replica.failures")
+                .description("Read-only connections a replica failed to provide")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The data source for connections that may write, always the primary.
+     *
+     * @return the write data source.
+     */
+    public DataSource getWriteDataSource() {
+        return writeDataSource;
+    }
+
+    /**
+     * Obtain a read-only connection from the next replica, or from the primary if the current user
+     * wrote recently or no replica is available.
+     *
+     * @return the connection.
+     * @throws SQLException if the primary cannot provide a connection either.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        String user = currentUser();
+        if (user == null || recentWriters.getIfPresent(user) == null) {
+            int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(1, replicas.size()));
+            for (int i = 0; i < replicas.size(); i++) {
+                int index = (start + i) % replicas.size();
+                if (System.nanoTime() - downUntil.get(index) < 0) {
+                    continue;
+                }
+                try {
+                    Connection connection = replicas.get(index).getConnection();
+                    replicaReads.get(index).increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replicaFailures.increment();
+                    downUntil.set(index, System.nanoTime() + downNanos);
+                }
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are obtained with the credentials of each pool");
+    }
+
+    /**
+     * Closes every pool when the application shuts down.
+     */
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    private static Counter readCounter(String route, MeterRegistry meterRegistry) {
+        return Counter.builder("datasource.routing.reads")
+                .description("Read-only connections handed out per route")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Hands out primary connections, and opens the read-your-writes window of the current user
+     * once a transaction that may have written commits.
+     */
+    private class WriteDataSource extends DelegatingDataSource {
+
+        WriteDataSource(DataSource primary) {
+            super(primary);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            String user = currentUser();
+            if (user != null && TransactionSynchronizationManager.isSynchronizationActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(user, Boolean.TRUE);
+                    }
+                });
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package gr.aueb.cf.studentapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class that enables scheduled tasks, such as purging expired refresh tokens.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,29 @@
+package gr.aueb.cf.studentapp.config;
+
+import gr.aueb.cf.studentapp.instrumentation.HandlerTimingInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration class for Spring MVC, registering the handler timing interceptor.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final HandlerTimingInterceptor handlerTimingInterceptor;
+
+    /**
+     * Constructs a WebMvcConfig.
+     *
+     * @param handlerTimingInterceptor the interceptor timing every controller handler method.
+     */
+    public WebMvcConfig(HandlerTimingInterceptor handlerTimingInterceptor) {
+        this.handlerTimingInterceptor = handlerTimingInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(handlerTimingInterceptor);
+    }
+}
@@ -1,8 +1,14 @@
 package gr.aueb.cf.studentapp.controller;
 
+import gr.aueb.cf.studentapp.exceptions.InvalidRefreshTokenException;
 import gr.aueb.cf.studentapp.model.User;
 import gr.aueb.cf.studentapp.repository.UserRepository;
+import gr.aueb.cf.studentapp.security.LoginRateLimiter;
+import gr.aueb.cf.studentapp.security.PasswordHashingExecutor;
 import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.service.RefreshTokenService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,9 +17,12 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Controller for handling authentication requests such as login.
+ * Controller for handling authentication requests such as login and token refresh.
  */
 @RestController
 @RequestMapping("/api")
@@ -22,6 +31,9 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginRateLimiter loginRateLimiter;
 
     /**
      * Constructs an AuthController with the required dependencies.
@@ -29,49 +41,126 @@ public class AuthController {
      * @param authenticationManager the authentication manager for user authentication.
      * @param jwtUtil utility for generating and validating JWT tokens.
      * @param userRepository repository for accessing user data.
+     * @param passwordHashingExecutor executor that runs the password verification.
+     * @param refreshTokenService service for issuing and rotating refresh tokens.
+     * @param loginRateLimiter limiter for login attempts per username and client address.
      */
-    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UserRepository userRepository) {
+    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UserRepository userRepository,
+                          PasswordHashingExecutor passwordHashingExecutor, RefreshTokenService refreshTokenService,
+                          LoginRateLimiter loginRateLimiter) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.refreshTokenService = refreshTokenService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     /**
      * Handles user login requests.
+     * The password is verified on the dedicated hashing executor, which frees the request thread
+     * and answers 503 with a Retry-After header when too many logins are already in progress.
+     * Attempts over the per-username or per-client limit are answered with 429 before any hashing runs.
      *
      * @param credentials a map containing the "username" and "password" keys.
-     * @return a ResponseEntity containing a JWT token if authentication is successful, or an error message otherwise.
+     * @param request the HTTP request, used for the client address.
+     * @return a future ResponseEntity containing a JWT token and a refresh token if authentication is successful,
+     * or an error message otherwise.
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody Map<String, String> credentials,
+                                                      HttpServletRequest request) {
+        // Validate that both username and password are provided
+        if (credentials.get("username") == null || credentials.get("password") == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Username and password are required"));
+        }
+
+        // Reject throttled attempts before they cost any hashing
+        long retryAfterSeconds = loginRateLimiter.tryAcquire(credentials.get("username"), request.getRemoteAddr());
+        if (retryAfterSeconds > 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body("Too many login attempts, please try again later"));
+        }
+
         try {
-            // Validate that both username and password are provided
-            if (credentials.get("username") == null || credentials.get("password") == null) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Username and password are required");
-            }
+            return passwordHashingExecutor.<ResponseEntity<?>>submit(() -> authenticate(credentials))
+                    .exceptionally(this::loginFailure);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingExecutor.getRetryAfterSeconds()))
+                    .body("Too many login attempts in progress, please try again later"));
+        }
+    }
+
+    /**
+     * Authenticates the user and generates their tokens. Runs on the hashing executor.
+     *
+     * @param credentials a map containing the "username" and "password" keys.
+     * @return a ResponseEntity containing a JWT token and a refresh token.
+     * @throws BadCredentialsException if the credentials are invalid.
+     */
+    private ResponseEntity<?> authenticate(Map<String, String> credentials) {
+        // Authenticate the user
+        authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(credentials.get("username"), credentials.get("password"))
+        );
+
+        // Retrieve the user and their role from the database
+        User user = userRepository.findByUsername(credentials.get("username"))
+                .orElseThrow(() -> new BadCredentialsException("Invalid username or password"));
+
+        // Generate a JWT token with the user's role
+        String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name(), user.getId(), user.getTokenVersion());
 
-            // Authenticate the user
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(credentials.get("username"), credentials.get("password"))
-            );
+        // Log the role included in the token (for debugging purposes)
+        System.out.println("Role in token: " + user.getRole().name());
 
-            // Retrieve the user and their role from the database
-            User user = userRepository.findByUsername(credentials.get("username"))
-                    .orElseThrow(() -> new BadCredentialsException("Invalid username or password"));
+        return ResponseEntity.ok(Map.of("token", token, "refreshToken", refreshTokenService.issue(user.getUsername())));
+    }
 
-            // Generate a JWT token with the user's role
-            String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name());
+    /**
+     * Handles token refresh requests.
+     * The refresh token is rotated: it is consumed and a new one is returned with the new JWT token,
+     * so renewing a session costs an index lookup instead of a password verification.
+     *
+     * @param request a map containing the "refreshToken" key.
+     * @return a ResponseEntity containing a new JWT token and refresh token, or an error message otherwise.
+     */
+    @PostMapping("/token/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> request) {
+        if (request.get("refreshToken") == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Refresh token is required");
+        }
+
+        try {
+            String username = refreshTokenService.consume(request.get("refreshToken"));
 
-            // Log the role included in the token (for debugging purposes)
-            System.out.println("Role in token: " + user.getRole().name());
+            // Retrieve the user again, so the new token carries the current role and token version
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new InvalidRefreshTokenException("User no longer exists"));
 
-            return ResponseEntity.ok(Map.of("token", token));
+            String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name(), user.getId(), user.getTokenVersion());
+            return ResponseEntity.ok(Map.of("token", token, "refreshToken", refreshTokenService.issue(user.getUsername())));
 
-        } catch (BadCredentialsException e) {
+        } catch (InvalidRefreshTokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a failed login to an error response.
+     *
+     * @param failure the exception thrown while authenticating.
+     * @return a ResponseEntity with the error message.
+     */
+    private ResponseEntity<?> loginFailure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof BadCredentialsException) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred during login");
         }
+        cause.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred during login");
     }
 }
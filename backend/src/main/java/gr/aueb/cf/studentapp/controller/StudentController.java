@@ -1,14 +1,37 @@
 package gr.aueb.cf.studentapp.controller;
 
+import gr.aueb.cf.studentapp.dto.StudentBulkRequest;
+import gr.aueb.cf.studentapp.dto.StudentBulkResult;
+import gr.aueb.cf.studentapp.dto.StudentChanges;
+import gr.aueb.cf.studentapp.dto.StudentImportResult;
+import gr.aueb.cf.studentapp.dto.StudentPage;
 import gr.aueb.cf.studentapp.exceptions.EmailAlreadyExistsException;
 import gr.aueb.cf.studentapp.exceptions.StudentNotFoundException;
+import gr.aueb.cf.studentapp.exceptions.StudentVersionMismatchException;
 import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.security.util.VerifiedToken;
+import gr.aueb.cf.studentapp.service.StudentBulkService;
+import gr.aueb.cf.studentapp.service.StudentEventBus;
+import gr.aueb.cf.studentapp.service.StudentImportService;
 import gr.aueb.cf.studentapp.service.StudentService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -18,20 +41,39 @@ import java.util.List;
 @RequestMapping("/api/students")
 public class StudentController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
+    private final StudentBulkService studentBulkService;
+    private final StudentEventBus studentEventBus;
+    private final ObjectMapper objectMapper;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, StudentImportService studentImportService,
+                             StudentBulkService studentBulkService, StudentEventBus studentEventBus,
+                             ObjectMapper objectMapper) {
         this.studentService = studentService;
+        this.studentImportService = studentImportService;
+        this.studentBulkService = studentBulkService;
+        this.studentEventBus = studentEventBus;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Get a student by ID.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getStudentById(@PathVariable Long id) {
+    public ResponseEntity<?> getStudentById(@PathVariable Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Student student = studentService.getStudentById(id);
-            return ResponseEntity.ok(student);
+            String eTag = eTag(student);
+            // Answer an unchanged student without serializing it again; If-None-Match uses the weak comparison
+            if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || parseETags(ifNoneMatch, true).contains(student.getVersion()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            return ResponseEntity.ok().eTag(eTag).body(student);
         } catch (StudentNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
         }
@@ -44,24 +86,84 @@ public class StudentController {
     public ResponseEntity<?> createStudent(@Valid @RequestBody Student student) {
         try {
             Student createdStudent = studentService.createStudent(student);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdStudent);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(eTag(createdStudent)).body(createdStudent);
         } catch (EmailAlreadyExistsException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Error: " + e.getMessage());
         }
     }
 
+    /**
+     * Import students in bulk from a CSV body (firstname,lastname,email).
+     * Valid rows are inserted; rejected rows are reported with their row number.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importStudentsCsv(@RequestBody String csv) {
+        try {
+            StudentImportResult result = studentImportService.importCsv(csv);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Import students in bulk from a JSON array of students.
+     * Valid rows are inserted; rejected rows are reported with their row number.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importStudentsJson(@RequestBody List<Student> students) {
+        try {
+            StudentImportResult result = studentImportService.importStudents(students);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Update many students at once, selected by {"ids": [...]} or by {"filter": {...}},
+     * with the non-null fields of {"set": {...}}.
+     */
+    @PostMapping("/bulk/update")
+    public ResponseEntity<?> updateStudents(@Valid @RequestBody StudentBulkRequest request) {
+        try {
+            StudentBulkResult result = studentBulkService.updateStudents(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delete many students at once, selected by {"ids": [...]} or by {"filter": {...}}.
+     */
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<?> deleteStudents(@Valid @RequestBody StudentBulkRequest request) {
+        try {
+            StudentBulkResult result = studentBulkService.deleteStudents(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + e.getMessage());
+        }
+    }
+
     /**
      * Update an existing student.
+     * With an If-Match header, the update is only applied if the student still has one of the given ETags.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateStudent(@PathVariable Long id, @Valid @RequestBody Student student) {
+    public ResponseEntity<?> updateStudent(@PathVariable Long id, @Valid @RequestBody Student student,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Student updatedStudent = studentService.updateStudent(id, student);
-            return ResponseEntity.ok(updatedStudent);
+            List<Long> expectedVersions = ifMatch == null || ifMatch.trim().equals("*") ? null : parseETags(ifMatch, false);
+            Student updatedStudent = studentService.updateStudent(id, student, expectedVersions);
+            return ResponseEntity.ok().eTag(eTag(updatedStudent)).body(updatedStudent);
         } catch (StudentNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
         } catch (EmailAlreadyExistsException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Error: " + e.getMessage());
+        } catch (StudentVersionMismatchException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Error: " + e.getMessage());
         }
     }
 
@@ -79,11 +181,132 @@ public class StudentController {
     }
 
     /**
-     * Get all students.
+     * Search students by partial first name, last name or email, best matches first.
+     * Every whitespace-separated term of the query must match.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchStudents(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        try {
+            List<Student> students = studentService.searchStudents(q, limit);
+            return ResponseEntity.ok(students);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the students created, updated or deleted since a revision, as
+     * {"updated": [...], "deleted": [ids], "revision": n, "nextCursor": "..."}.
+     * Pass nextCursor back until it is null, then keep revision for the next synchronization.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getStudentChanges(@RequestParam(defaultValue = "0") long since,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit) {
+        try {
+            StudentChanges changes = studentService.getChanges(since, cursor, limit);
+            return ResponseEntity.ok(changes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Subscribe to student changes as Server-Sent Events: "upsert" with the student, "delete" with its ID,
+     * and "resync" when the client should catch up through /changes. Event IDs are revisions, so a client
+     * reconnecting with Last-Event-ID is told to resync if it missed anything. The stream is closed when
+     * the token expires or is revoked, and the client reconnects with a current token.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToStudentEvents(
+            Authentication authentication,
+            @RequestAttribute(VerifiedToken.REQUEST_ATTRIBUTE) VerifiedToken token,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        List<String> authorities = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+        SseEmitter emitter = studentEventBus.subscribe(token, authorities, lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Export all students as newline-delimited JSON, one student per line.
+     * Students are written while they are read from the database, so the first line is sent
+     * immediately and memory use does not grow with the size of the table.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportStudents(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        ObjectWriter writer = objectMapper.writerFor(Student.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null); // Lines are terminated explicitly below
+            int[] written = {0};
+            studentService.forEachStudent(student -> {
+                try {
+                    writer.writeValue(generator, student);
+                    generator.writeRaw('\n');
+                    // Flush the first line right away, then in batches
+                    if (written[0]++ % EXPORT_FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Get all students, or one page of students when any of the paging parameters is given.
+     * Pages are returned as {"items": [...], "nextCursor": "..."}; pass nextCursor back to get the next page.
      */
     @GetMapping
-    public ResponseEntity<List<Student>> getAllStudents() {
-        List<Student> students = studentService.getAllStudents();
-        return ResponseEntity.ok(students);
+    public ResponseEntity<?> getAllStudents(@RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) String sort) {
+        if (limit == null && cursor == null && sort == null) {
+            List<Student> students = studentService.getAllStudents();
+            return ResponseEntity.ok(students);
+        }
+        try {
+            StudentPage page = studentService.getStudentsPage(sort, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The strong ETag of a student, which changes whenever the student is updated.
+     */
+    private static String eTag(Student student) {
+        return "\"" + student.getVersion() + "\"";
+    }
+
+    /**
+     * Parses the versions out of a comma-separated list of ETags. ETags that were not issued by
+     * this controller are skipped, and so are weak ETags unless the weak comparison is used.
+     *
+     * @param header the If-Match or If-None-Match header.
+     * @param weak whether a weak ETag matches the strong ETag with the same value.
+     */
+    private static List<Long> parseETags(String header, boolean weak) {
+        List<Long> versions = new ArrayList<>();
+        for (String tag : header.split(",")) {
+            String value = tag.trim();
+            if (weak && value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(value.substring(1, value.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours, so it cannot match
+                }
+            }
+        }
+        return versions;
     }
 }
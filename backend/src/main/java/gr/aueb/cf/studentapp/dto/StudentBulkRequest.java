@@ -0,0 +1,69 @@
+package gr.aueb.cf.studentapp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bulk update or bulk delete of students, selected either by ID or by a filter.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentBulkRequest {
+
+    /**
+     * The IDs of the students to change. Must not be combined with a filter.
+     */
+    private long[] ids;
+
+    /**
+     * The filter selecting the students to change. Must not be combined with IDs.
+     */
+    @Valid
+    private Filter filter;
+
+    /**
+     * The new values, for a bulk update. Fields left null are not changed.
+     */
+    @Valid
+    private Changes set;
+
+    /**
+     * Selects students by their fields. Every given criterion must match.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Filter {
+
+        /**
+         * The exact last name of the students.
+         */
+        private String lastname;
+
+        /**
+         * The domain of the email addresses of the students, e.g. "example.com".
+         */
+        @Pattern(regexp = "^[a-zA-Z0-9.-]+$", message = "Email domain may only contain letters, digits, dots and hyphens")
+        private String emailDomain;
+    }
+
+    /**
+     * The fields a bulk update can change. Emails are unique, so they cannot be set in bulk.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Changes {
+
+        @Size(min = 2, max = 50, message = "First name must be between 2 and 50 characters")
+        private String firstname;
+
+        @Size(min = 2, max = 50, message = "Last name must be between 2 and 50 characters")
+        private String lastname;
+    }
+}
@@ -0,0 +1,25 @@
+package gr.aueb.cf.studentapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of a bulk update or bulk delete of students.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentBulkResult {
+
+    /**
+     * The number of students updated or deleted.
+     */
+    private long affected;
+
+    /**
+     * The requested IDs that did not belong to any student, in ascending order.
+     * Always empty when the students were selected by a filter.
+     */
+    private long[] notFound;
+}
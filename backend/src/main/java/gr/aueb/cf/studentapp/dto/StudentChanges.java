@@ -0,0 +1,38 @@
+package gr.aueb.cf.studentapp.dto;
+
+import gr.aueb.cf.studentapp.model.Student;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The students created, updated or deleted since a revision.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentChanges {
+
+    /**
+     * The created or updated students, in the order they last changed.
+     */
+    private List<Student> updated;
+
+    /**
+     * The IDs of the deleted students, in the order they were deleted.
+     */
+    private long[] deleted;
+
+    /**
+     * The revision these changes bring the client up to. Once nextCursor is null,
+     * the client passes it as the since parameter of its next synchronization.
+     */
+    private long revision;
+
+    /**
+     * The opaque cursor to request the rest of the changes with, or null if there are no more.
+     */
+    private String nextCursor;
+}
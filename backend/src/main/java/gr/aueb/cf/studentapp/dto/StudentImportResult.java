@@ -0,0 +1,55 @@
+package gr.aueb.cf.studentapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk student import.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentImportResult {
+
+    /**
+     * The number of rows received.
+     */
+    private int received;
+
+    /**
+     * The number of students inserted.
+     */
+    private int imported;
+
+    /**
+     * The rows that were rejected, in row order.
+     */
+    private List<RowError> errors;
+
+    /**
+     * A rejected row of a bulk import.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+
+        /**
+         * The 1-based number of the row in the import (excluding any CSV header).
+         */
+        private int row;
+
+        /**
+         * The email of the rejected row, if any.
+         */
+        private String email;
+
+        /**
+         * Why the row was rejected.
+         */
+        private String message;
+    }
+}
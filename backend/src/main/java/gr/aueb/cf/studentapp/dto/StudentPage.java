@@ -0,0 +1,27 @@
+package gr.aueb.cf.studentapp.dto;
+
+import gr.aueb.cf.studentapp.model.Student;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of students returned by keyset pagination.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentPage {
+
+    /**
+     * The students of this page, in the requested order.
+     */
+    private List<Student> items;
+
+    /**
+     * The opaque cursor to request the next page with, or null if this is the last page.
+     */
+    private String nextCursor;
+}
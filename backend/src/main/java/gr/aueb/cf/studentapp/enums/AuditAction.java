@@ -0,0 +1,12 @@
+package gr.aueb.cf.studentapp.enums;
+
+/**
+ * Enum representing the audited changes.
+ * Stored by ordinal in the audit log, so new values must only be added at the end.
+ */
+public enum AuditAction {
+    CREATE,
+    UPDATE,
+    DELETE;
+
+}
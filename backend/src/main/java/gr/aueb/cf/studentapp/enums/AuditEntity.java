@@ -0,0 +1,11 @@
+package gr.aueb.cf.studentapp.enums;
+
+/**
+ * Enum representing the kinds of records whose changes are audited.
+ * Stored by ordinal in the audit log, so new values must only be added at the end.
+ */
+public enum AuditEntity {
+    STUDENT,
+    USER;
+
+}
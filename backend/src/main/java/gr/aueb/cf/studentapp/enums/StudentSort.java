@@ -0,0 +1,29 @@
+package gr.aueb.cf.studentapp.enums;
+
+/**
+ * Enum representing the orders in which students can be paged through.
+ * Every order ends with the student ID, so it is total and keyset pagination is stable.
+ */
+public enum StudentSort {
+    ID,
+    LASTNAME,
+    EMAIL;
+
+    /**
+     * Parse a sort parameter, ignoring case.
+     *
+     * @param value the sort parameter, or null for the default order.
+     * @return the matching sort order.
+     * @throws IllegalArgumentException if the value is not a known order.
+     */
+    public static StudentSort fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort: " + value + " (expected id, lastname or email)");
+        }
+    }
+}
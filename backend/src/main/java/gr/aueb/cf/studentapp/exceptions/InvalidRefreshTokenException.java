@@ -0,0 +1,19 @@
+package gr.aueb.cf.studentapp.exceptions;
+
+/**
+ * Exception thrown when a refresh token is unknown, already used or expired.
+ * This exception includes a specific error code.
+ */
+public class InvalidRefreshTokenException extends AppGenericException {
+
+    private static final String DEFAULT_CODE = "INVALID_REFRESH_TOKEN";
+
+    /**
+     * Constructs a new InvalidRefreshTokenException with a default error code and message.
+     *
+     * @param message a detailed message describing the error.
+     */
+    public InvalidRefreshTokenException(String message) {
+        super(DEFAULT_CODE, message);
+    }
+}
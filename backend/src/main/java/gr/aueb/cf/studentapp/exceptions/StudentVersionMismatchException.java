@@ -0,0 +1,19 @@
+package gr.aueb.cf.studentapp.exceptions;
+
+/**
+ * Exception thrown when a student was changed by someone else since the version the client based its update on.
+ * This exception includes a specific error code.
+ */
+public class StudentVersionMismatchException extends AppGenericException {
+
+    private static final String DEFAULT_CODE = "STUDENT_VERSION_MISMATCH";
+
+    /**
+     * Constructs a new StudentVersionMismatchException with a default error code and message.
+     *
+     * @param message a detailed message describing the error.
+     */
+    public StudentVersionMismatchException(String message) {
+        super(DEFAULT_CODE, message);
+    }
+}
@@ -0,0 +1,70 @@
+package gr.aueb.cf.studentapp.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each controller handler method on its own, without the filters in front of it.
+ * Together with http.server.requests, which covers the whole request, this tells apart time spent
+ * in the handler from time spent in authentication, serialization and the other filters.
+ * For asynchronous handlers, such as the login and the event stream, only the time until the
+ * handler returns is recorded, once: the dispatch that later writes their result is not timed again.
+ */
+@Component
+public class HandlerTimingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED_AT = HandlerTimingInterceptor.class.getName() + ".startedAt";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a HandlerTimingInterceptor.
+     *
+     * @param meterRegistry the registry the handler timers are published to.
+     */
+    public HandlerTimingInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The ASYNC dispatch writing an asynchronous result runs the handler chain again, but not the handler
+        if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+            request.setAttribute(STARTED_AT, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        record(request, handler, null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        record(request, handler, ex);
+    }
+
+    private void record(HttpServletRequest request, Object handler, Exception ex) {
+        Object startedAt = request.getAttribute(STARTED_AT);
+        if (!(handler instanceof HandlerMethod handlerMethod) || !(startedAt instanceof Long start)) {
+            return;
+        }
+        request.removeAttribute(STARTED_AT);
+        Timer.builder("http.server.handler")
+                .description("Time spent in controller handler methods")
+                .tag("controller", handlerMethod.getBeanType().getSimpleName())
+                .tag("handler", handlerMethod.getMethod().getName())
+                .tag("exception", ex == null ? "none" : ex.getClass().getSimpleName())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,125 @@
+package gr.aueb.cf.studentapp.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the statements, rows and database time of each HTTP request, including the user lookups
+ * of the security filters, and publishes them per endpoint.
+ * Requests running more statements than the query budget, or running the same statement over and
+ * over (the usual N+1 pattern), are logged and counted. Bulk endpoints, which run a statement
+ * per chunk by design, can be exempted from the flagging while still being measured.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+@ConditionalOnProperty(name = "db.instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    private final QueryInstrumentation queryInstrumentation;
+    private final MeterRegistry meterRegistry;
+    private final int queryBudget;
+    private final int repeatedStatementThreshold;
+    private final List<String> exemptUris;
+
+    /**
+     * Constructs a QueryBudgetFilter.
+     *
+     * @param queryInstrumentation the instrumentation collecting the statements of each request.
+     * @param meterRegistry the registry the per request metrics are published to.
+     * @param queryBudget the maximum number of statements a request should run.
+     * @param repeatedStatementThreshold the number of executions of one statement within a request flagged as N+1.
+     * @param exemptUris the endpoint patterns never flagged.
+     */
+    public QueryBudgetFilter(QueryInstrumentation queryInstrumentation, MeterRegistry meterRegistry,
+                             @Value("${db.instrumentation.query-budget:10}") int queryBudget,
+                             @Value("${db.instrumentation.repeated-statement-threshold:5}") int repeatedStatementThreshold,
+                             @Value("${db.instrumentation.exempt-uris:}") List<String> exemptUris) {
+        this.queryInstrumentation = queryInstrumentation;
+        this.meterRegistry = meterRegistry;
+        this.queryBudget = queryBudget;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+        this.exemptUris = exemptUris;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (QueryInstrumentation.Scope scope = queryInstrumentation.open()) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                record(request, scope.getStatistics());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, QueryStatistics statistics) {
+        // The matched pattern keeps the number of tag values bounded, unlike the raw URI
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+
+        DistributionSummary.builder("db.request.statements")
+                .description("Statements executed per HTTP request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getStatements());
+        DistributionSummary.builder("db.request.rows")
+                .description("Rows read or updated per HTTP request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getRows());
+        Timer.builder("db.request.time")
+                .description("Time spent executing statements per HTTP request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getTime());
+
+        if (exemptUris.contains(uri)) {
+            return;
+        }
+        if (statistics.getStatements() > queryBudget) {
+            Counter.builder("db.request.budget.exceeded")
+                    .description("HTTP requests that executed more statements than the query budget")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment();
+            LOGGER.warn("Query budget exceeded: {} {} executed {} statements (budget {})",
+                    request.getMethod(), uri, statistics.getStatements(), queryBudget);
+        }
+        Map<String, Integer> repeated = statistics.getRepeatedStatements(repeatedStatementThreshold);
+        if (!repeated.isEmpty()) {
+            Counter.builder("db.request.repeated.statements")
+                    .description("HTTP requests that executed the same statement repeatedly, a likely N+1 query")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment();
+            if (LOGGER.isWarnEnabled()) {
+                repeated.forEach((sql, executions) -> LOGGER.warn("Repeated statement: {} {} executed {}x {}",
+                        request.getMethod(), uri, executions, sql));
+            }
+        }
+    }
+}
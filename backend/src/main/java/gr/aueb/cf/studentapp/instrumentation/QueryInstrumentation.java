@@ -0,0 +1,190 @@
+package gr.aueb.cf.studentapp.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.lifecycle.JdbcLifecycleEventListenerAdapter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the statements, rows and database time of the current thread.
+ * <p>
+ * Every statement going through the instrumented data source is added to each scope open on the
+ * current thread, and published as metrics tagged with the repository method that issued it,
+ * or "none" for statements issued outside repositories, such as flushes and JDBC batches.
+ */
+@Component
+public class QueryInstrumentation extends JdbcLifecycleEventListenerAdapter {
+
+    private static final String NO_REPOSITORY_METHOD = "none";
+    private static final String STARTED_AT = "startedAt";
+
+    private final ThreadLocal<List<QueryStatistics>> scopes = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<String> repositoryMethod = new ThreadLocal<>();
+    private final Map<String, MethodMeters> metersByMethod = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a QueryInstrumentation.
+     *
+     * @param meterRegistry the registry the per repository method metrics are published to.
+     */
+    public QueryInstrumentation(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Open a scope collecting the statements executed by the current thread until it is closed.
+     * Scopes can be nested, and a statement counts in every open scope.
+     *
+     * @return the scope.
+     */
+    public Scope open() {
+        QueryStatistics statistics = new QueryStatistics();
+        scopes.get().add(statistics);
+        return new Scope(statistics);
+    }
+
+    /**
+     * Run an action and count the statements it executes.
+     *
+     * @param action the action to run.
+     * @return the statements, rows and time of the action.
+     * @throws Exception if the action throws.
+     */
+    public QueryStatistics count(Action action) throws Exception {
+        try (Scope scope = open()) {
+            action.run();
+            return scope.getStatistics();
+        }
+    }
+
+    /**
+     * Creates the advice attributing the statements of a repository method call to that method.
+     *
+     * @param repositoryName the simple name of the repository interface.
+     * @return the advice.
+     */
+    public MethodInterceptor repositoryMethodInterceptor(String repositoryName) {
+        return invocation -> {
+            String previous = repositoryMethod.get();
+            repositoryMethod.set(repositoryName + "." + invocation.getMethod().getName());
+            try {
+                return invocation.proceed();
+            } finally {
+                repositoryMethod.set(previous);
+            }
+        };
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+        executionInfo.addCustomValue(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+        long nanos = System.nanoTime() - executionInfo.getCustomValue(STARTED_AT, Long.class);
+        long updatedRows = updatedRows(executionInfo.getResult());
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        for (QueryStatistics statistics : scopes.get()) {
+            statistics.recordStatement(sql, nanos, updatedRows);
+        }
+
+        String method = repositoryMethod.get();
+        MethodMeters meters = metersByMethod.computeIfAbsent(method == null ? NO_REPOSITORY_METHOD : method, MethodMeters::new);
+        meters.time.record(nanos, TimeUnit.NANOSECONDS);
+        meters.rows.increment(updatedRows);
+    }
+
+    @Override
+    public void afterNext(MethodExecutionContext executionContext) {
+        if (Boolean.TRUE.equals(executionContext.getResult())) {
+            for (QueryStatistics statistics : scopes.get()) {
+                statistics.recordRow();
+            }
+            String method = repositoryMethod.get();
+            metersByMethod.computeIfAbsent(method == null ? NO_REPOSITORY_METHOD : method, MethodMeters::new).rows.increment();
+        }
+    }
+
+    private static long updatedRows(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(0, count);
+        }
+        if (result instanceof int[] counts) {
+            long sum = 0;
+            for (int count : counts) {
+                sum += Math.max(0, count); // SUCCESS_NO_INFO is negative
+            }
+            return sum;
+        }
+        return 0;
+    }
+
+    /**
+     * An action whose statements are counted.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * A scope open on the current thread, closed on the same thread.
+     */
+    public class Scope implements AutoCloseable {
+
+        private final QueryStatistics statistics;
+
+        private Scope(QueryStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        /**
+         * @return the statements, rows and time collected so far.
+         */
+        public QueryStatistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void close() {
+            List<QueryStatistics> open = scopes.get();
+            open.remove(statistics);
+            if (open.isEmpty()) {
+                scopes.remove();
+            }
+        }
+    }
+
+    /**
+     * The metrics of one repository method.
+     */
+    private class MethodMeters {
+
+        private final Timer time;
+        private final Counter rows;
+
+        MethodMeters(String method) {
+            this.time = Timer.builder("db.statements")
+                    .description("Statements executed, and their duration, per repository method")
+                    .tag("repository.method", method)
+                    .register(meterRegistry);
+            this.rows = Counter.builder("db.rows")
+                    .description("Rows read or updated per repository method")
+                    .tag("repository.method", method)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package gr.aueb.cf.studentapp.instrumentation;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The statements, rows and database time of one scope, such as an HTTP request, on one thread.
+ * A JDBC batch counts as a single statement, since it is a single round trip.
+ * <p>
+ * Tests can assert exact statement counts, so that an extra round trip fails the build:
+ * <pre>{@code
+ * queryInstrumentation.count(() -> studentService.createStudent(student)).assertStatements(2);
+ * }</pre>
+ */
+public class QueryStatistics {
+
+    private int statements;
+    private long rows;
+    private long timeNanos;
+    private final Map<String, Integer> executionsBySql = new LinkedHashMap<>();
+
+    void recordStatement(String sql, long nanos, long updatedRows) {
+        statements++;
+        timeNanos += nanos;
+        rows += updatedRows;
+        executionsBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    /**
+     * @return the number of statements executed, counting each batch once.
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return the number of rows read plus the number of rows updated.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the time spent executing statements.
+     */
+    public Duration getTime() {
+        return Duration.ofNanos(timeNanos);
+    }
+
+    /**
+     * The statements executed at least the given number of times, the usual sign of an N+1 query pattern.
+     *
+     * @param threshold the minimum number of executions.
+     * @return the SQL of each repeated statement, with its number of executions.
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        return executionsBySql.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Assert that exactly the given number of statements was executed.
+     *
+     * @param expected the expected number of statements.
+     * @throws AssertionError listing the executed statements if the count differs.
+     */
+    public void assertStatements(int expected) {
+        if (statements != expected) {
+            throw new AssertionError("Expected " + expected + " statements but " + statements + " were executed:\n" + describe());
+        }
+    }
+
+    /**
+     * Assert that at most the given number of statements was executed.
+     *
+     * @param maximum the maximum number of statements.
+     * @throws AssertionError listing the executed statements if there were more.
+     */
+    public void assertStatementsAtMost(int maximum) {
+        if (statements > maximum) {
+            throw new AssertionError("Expected at most " + maximum + " statements but " + statements + " were executed:\n" + describe());
+        }
+    }
+
+    /**
+     * @return every distinct statement executed, one per line, with its number of executions.
+     */
+    public String describe() {
+        return executionsBySql.entrySet().stream()
+                .map(entry -> entry.getValue() + "x " + entry.getKey())
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,46 @@
+package gr.aueb.cf.studentapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Entity class representing an issued refresh token.
+ * Only the SHA-256 digest of the opaque token is stored, in a unique indexed column,
+ * so renewing an access token costs a single index lookup.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = @Index(name = "idx_refresh_tokens_username", columnList = "username"))
+public class RefreshToken {
+
+    /**
+     * The unique identifier of the refresh token.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The Base64-encoded SHA-256 digest of the opaque token.
+     */
+    @Column(name = "token_hash", nullable = false, unique = true, length = 44)
+    private String tokenHash;
+
+    /**
+     * The username of the user the token was issued to.
+     */
+    @Column(nullable = false, length = 50)
+    private String username;
+
+    /**
+     * The instant the token expires at.
+     */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -1,24 +1,46 @@
 package gr.aueb.cf.studentapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 /**
  * Entity class representing a Student in the database.
  * This class maps to the "students" table in the database and
  * defines the structure of a student record.
+ * Students are kept in the second-level cache, both by ID and by email.
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "students")
+@Table(name = "students", indexes = {
+        @Index(name = "idx_students_lastname_id", columnList = "lastname, id"),
+        @Index(name = "idx_students_revision_id", columnList = "revision, id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Student.CACHE_REGION)
+@NaturalIdCache(region = Student.EMAIL_CACHE_REGION)
 public class Student {
 
+    /**
+     * The second-level cache region of students by ID.
+     */
+    public static final String CACHE_REGION = "students";
+
+    /**
+     * The second-level cache region mapping emails to student IDs.
+     */
+    public static final String EMAIL_CACHE_REGION = "students-by-email";
+
     /**
      * The unique identifier of the student. This is the primary key in the "students" table.
      * It is auto-generated by the database.
@@ -49,6 +71,7 @@ public class Student {
      * The email address of the student. This must be unique and cannot be null.
      * The email has a maximum length of 100 characters.
      * Additionally, it must follow a specific pattern defined by the regex.
+     * It is the natural ID of the student, and may be changed.
      */
     @NotBlank(message = "Email is mandatory")
     @Email(message = "Email should be valid")
@@ -57,6 +80,31 @@ public class Student {
             regexp = "^[a-zA-Z]+[a-zA-Z0-9]*@[a-zA-Z]+\\.[a-zA-Z]{2,}$",
             message = "Email must start with letters, contain numbers if needed, followed by @, letters, a dot, and domain letters"
     )
+    @NaturalId(mutable = true)
     @Column(name = "email", nullable = false, unique = true, length = 100)
     private String email;
+
+    /**
+     * The version of the student, incremented on every update and used for optimistic locking.
+     * It is not part of the JSON representation; clients see it as the ETag of the student.
+     */
+    @JsonIgnore
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * The revision of the last change to the student, shared by every student changed in the same
+     * transaction and increasing across transactions. Used to synchronize clients incrementally.
+     */
+    @JsonIgnore
+    @Column(name = "revision", nullable = false)
+    private long revision;
+
+    /**
+     * Constructs a Student that has not been versioned yet.
+     */
+    public Student(Long id, String firstname, String lastname, String email) {
+        this(id, firstname, lastname, email, 0, 0);
+    }
 }
@@ -0,0 +1,31 @@
+package gr.aueb.cf.studentapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class recording the deletion of a student, so that clients synchronizing
+ * changes since an earlier revision learn which students to drop.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "student_tombstones", indexes = @Index(name = "idx_student_tombstones_revision_id", columnList = "revision, student_id"))
+public class StudentTombstone {
+
+    /**
+     * The ID of the deleted student.
+     */
+    @Id
+    @Column(name = "student_id")
+    private Long studentId;
+
+    /**
+     * The revision at which the student was deleted.
+     */
+    @Column(nullable = false)
+    private long revision;
+}
@@ -1,6 +1,7 @@
 package gr.aueb.cf.studentapp.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import gr.aueb.cf.studentapp.enums.Role;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -41,9 +42,11 @@ public class User implements UserDetails {
     private String username;
 
     /**
-     * The password of the user. Must be at least 6 characters long.
+     * The password of the user. Must be at least 6 characters long, and is required when the user is created.
+     * Never serialized, so the stored hash is not sent to clients.
      */
-    @NotBlank(message = "Password is required")
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @NotBlank(message = "Password is required", groups = Create.class)
     @Size(min = 6, message = "Password must be at least 6 characters")
     private String password;
 
@@ -54,6 +57,20 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Role role;
 
+    /**
+     * The token version of the user. Incremented on every change to the user,
+     * which revokes all tokens issued before the change.
+     */
+    @JsonIgnore
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    /**
+     * Validation group of the constraints that only apply when a user is created.
+     */
+    public interface Create {
+    }
+
     /**
      * Retrieves the authorities granted to the user. This implementation returns the user's role
      * prefixed with "ROLE_" as a {@link SimpleGrantedAuthority}.
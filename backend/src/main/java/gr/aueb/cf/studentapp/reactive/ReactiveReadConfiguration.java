@@ -0,0 +1,158 @@
+package gr.aueb.cf.studentapp.reactive;
+
+import gr.aueb.cf.studentapp.security.CachedUserDetailsService;
+import gr.aueb.cf.studentapp.security.SecurityConfig;
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import gr.aueb.cf.studentapp.security.filters.ReactiveJwtAuthorizationFilter;
+import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.security.util.VerifiedTokenCache;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.codec.CodecsAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.HttpHandlerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.WebFluxAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.error.ErrorWebFluxAutoConfiguration;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Configuration of the application context of the reactive read API, refreshed by {@link ReactiveReadServer}.
+ * Only the WebFlux auto-configurations are imported, so the context runs Reactor Netty and the routes below,
+ * and uses the token verification, user cache and JSON mapper of the main context rather than its own.
+ * Registered explicitly rather than annotated, so component scanning never picks it up.
+ */
+@EnableWebFluxSecurity
+@ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, CodecsAutoConfiguration.class,
+        HttpHandlerAutoConfiguration.class, WebFluxAutoConfiguration.class, ErrorWebFluxAutoConfiguration.class})
+public class ReactiveReadConfiguration {
+
+    /**
+     * The Reactor Netty server of the reactive read API, on its own port.
+     *
+     * @param port the port to listen on.
+     * @return the server factory.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory reactiveWebServerFactory(@Value("${reactive.port:8081}") int port) {
+        return new NettyReactiveWebServerFactory(port);
+    }
+
+    /**
+     * The R2DBC connection pool to the students database.
+     *
+     * @param url the R2DBC URL of the database.
+     * @param username the database username.
+     * @param password the database password.
+     * @param initialSize the number of connections opened on startup.
+     * @param maxSize the maximum number of connections.
+     * @return the connection pool, disposed when the context closes.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveConnectionPool(@Value("${reactive.r2dbc.url}") String url,
+                                                 @Value("${reactive.r2dbc.username:}") String username,
+                                                 @Value("${reactive.r2dbc.password:}") String password,
+                                                 @Value("${reactive.r2dbc.initial-size:2}") int initialSize,
+                                                 @Value("${reactive.r2dbc.max-size:10}") int maxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    /**
+     * The repository reading students over R2DBC.
+     *
+     * @param connectionPool the connection pool.
+     * @param fetchSize the number of rows fetched per round trip when streaming all students.
+     * @return the repository.
+     */
+    @Bean
+    public ReactiveStudentRepository reactiveStudentRepository(ConnectionPool connectionPool,
+                                                               @Value("${reactive.r2dbc.fetch-size:1000}") int fetchSize) {
+        return new ReactiveStudentRepository(DatabaseClient.create(connectionPool), fetchSize);
+    }
+
+    /**
+     * The routes of the reactive read API. IDs are restricted to digits, so paths such as
+     * /api/students/search, which only the servlet API serves, are not found rather than rejected.
+     *
+     * @param studentRepository the repository the students are read from.
+     * @param defaultPageSize the page size when none is requested.
+     * @param maxPageSize the largest page size a client may request.
+     * @return the router function.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> reactiveStudentRoutes(ReactiveStudentRepository studentRepository,
+                                                                @Value("${students.page.default-limit:50}") int defaultPageSize,
+                                                                @Value("${students.page.max-limit:500}") int maxPageSize) {
+        ReactiveStudentHandler handler = new ReactiveStudentHandler(studentRepository, defaultPageSize, maxPageSize);
+        return RouterFunctions.route()
+                .GET("/api/students", handler::getAllStudents)
+                .GET("/api/students/{id:\\d+}", handler::getStudentById)
+                .build();
+    }
+
+    /**
+     * The security filter chain of the reactive read API, with the same rules as the servlet API for these paths.
+     * The JWT filter is created here rather than declared as a bean, so it only runs inside the chain.
+     *
+     * @param http the ServerHttpSecurity object for configuring security.
+     * @param jwtUtil utility for validating JWT tokens.
+     * @param verifiedTokenCache cache of already verified tokens.
+     * @param userDetailsService service for loading user details.
+     * @param tokenVersionRegistry table of current token versions, used in stateless mode.
+     * @param stateless whether to authenticate from the token claims alone, without loading the user.
+     * @return a SecurityWebFilterChain object.
+     */
+    @Bean
+    public SecurityWebFilterChain reactiveSecurityWebFilterChain(ServerHttpSecurity http, JwtUtil jwtUtil,
+                                                                 VerifiedTokenCache verifiedTokenCache,
+                                                                 CachedUserDetailsService userDetailsService,
+                                                                 TokenVersionRegistry tokenVersionRegistry,
+                                                                 @Value("${jwt.stateless:false}") boolean stateless) {
+        UrlBasedCorsConfigurationSource corsConfigurationSource = new UrlBasedCorsConfigurationSource();
+        corsConfigurationSource.registerCorsConfiguration("/**", SecurityConfig.corsConfiguration());
+
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .logout(ServerHttpSecurity.LogoutSpec::disable)
+                .cors(cors -> cors.configurationSource(corsConfigurationSource))
+                // Every request carries its token, so nothing is kept between requests
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers(HttpMethod.GET, "/api/students").hasAnyAuthority("ROLE_USER", "ROLE_ADMIN")
+                        .anyExchange().authenticated()
+                )
+                // Requests without a token are forbidden, as they are on the servlet API
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .addFilterAt(new ReactiveJwtAuthorizationFilter(jwtUtil, verifiedTokenCache, userDetailsService,
+                        tokenVersionRegistry, stateless), SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package gr.aueb.cf.studentapp.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.studentapp.security.CachedUserDetailsService;
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.security.util.VerifiedTokenCache;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.context.AnnotationConfigReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Runs the reactive read API next to the servlet API, when enabled.
+ * GET /api/students and GET /api/students/{id} are served a second time, on their own port, by
+ * WebFlux on Reactor Netty and R2DBC: a few event loop threads serve any number of concurrent reads,
+ * rather than one thread per request. The reactive stack lives in an application context of its own,
+ * see {@link ReactiveReadConfiguration}, which is started after the servlet server and stopped before it.
+ * It is not a child of the main context, because WebFlux refuses to start under a context with
+ * Spring MVC configured; the beans it shares are handed over explicitly instead.
+ */
+@Component
+@ConditionalOnProperty(name = "reactive.enabled", havingValue = "true")
+public class ReactiveReadServer implements SmartLifecycle {
+
+    /**
+     * The beans of the main context used by the reactive stack: the JSON mapper, so that both APIs
+     * serialize students identically, and the token verification and user lookups of the security filters.
+     */
+    private static final List<Class<?>> SHARED_BEANS = List.of(ObjectMapper.class, JwtUtil.class,
+            VerifiedTokenCache.class, CachedUserDetailsService.class, TokenVersionRegistry.class);
+
+    private final ApplicationContext mainContext;
+    private final ConfigurableEnvironment environment;
+    private volatile AnnotationConfigReactiveWebServerApplicationContext context;
+
+    /**
+     * Constructs a ReactiveReadServer.
+     *
+     * @param mainContext the main application context, providing the shared beans.
+     * @param environment the environment of the main context, providing the properties.
+     */
+    public ReactiveReadServer(ApplicationContext mainContext, ConfigurableEnvironment environment) {
+        this.mainContext = mainContext;
+        this.environment = environment;
+    }
+
+    @Override
+    public void start() {
+        AnnotationConfigReactiveWebServerApplicationContext reactiveContext = new AnnotationConfigReactiveWebServerApplicationContext();
+        reactiveContext.setId(mainContext.getId() + "-reactive");
+        reactiveContext.getEnvironment().merge(environment);
+        // Registered as ready-made singletons, so they are neither initialized nor destroyed a second time
+        ConfigurableListableBeanFactory beanFactory = reactiveContext.getBeanFactory();
+        for (Class<?> type : SHARED_BEANS) {
+            beanFactory.registerSingleton(type.getName(), mainContext.getBean(type));
+        }
+        reactiveContext.register(ReactiveReadConfiguration.class);
+        reactiveContext.refresh();
+        context = reactiveContext;
+    }
+
+    @Override
+    public void stop() {
+        AnnotationConfigReactiveWebServerApplicationContext reactiveContext = context;
+        if (reactiveContext != null) {
+            context = null;
+            reactiveContext.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return context != null;
+    }
+}
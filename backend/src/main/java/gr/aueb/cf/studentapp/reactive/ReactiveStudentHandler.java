@@ -0,0 +1,114 @@
+package gr.aueb.cf.studentapp.reactive;
+
+import gr.aueb.cf.studentapp.dto.StudentPage;
+import gr.aueb.cf.studentapp.enums.StudentSort;
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.service.StudentCursor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Handler functions of the reactive read API for students.
+ * Requests and responses match those of {@link gr.aueb.cf.studentapp.controller.StudentController}
+ * for the same paths, including ETags, keyset pagination and error bodies.
+ */
+public class ReactiveStudentHandler {
+
+    private final ReactiveStudentRepository studentRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    /**
+     * Constructs a ReactiveStudentHandler.
+     *
+     * @param studentRepository the repository the students are read from.
+     * @param defaultPageSize the page size when none is requested.
+     * @param maxPageSize the largest page size a client may request.
+     */
+    public ReactiveStudentHandler(ReactiveStudentRepository studentRepository, int defaultPageSize, int maxPageSize) {
+        this.studentRepository = studentRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Get a student by ID, or 304 Not Modified if the If-None-Match header matches its ETag.
+     */
+    public Mono<ServerResponse> getStudentById(ServerRequest request) {
+        long id;
+        try {
+            id = Long.parseLong(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return studentRepository.findById(id)
+                .flatMap(student -> {
+                    String eTag = eTag(student);
+                    // Answer an unchanged student without serializing it again
+                    return request.checkNotModified(eTag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).bodyValue(student)));
+                })
+                .switchIfEmpty(Mono.defer(() -> error(HttpStatus.NOT_FOUND, "Student with ID " + id + " not found")));
+    }
+
+    /**
+     * Get all students, or one page of students when any of the paging parameters is given.
+     * All students are streamed as a JSON array, or as newline-delimited JSON when the client accepts it;
+     * either way they are written while they are read, at the pace the client consumes them.
+     */
+    public Mono<ServerResponse> getAllStudents(ServerRequest request) {
+        Optional<String> limit = request.queryParam("limit");
+        Optional<String> cursor = request.queryParam("cursor");
+        Optional<String> sort = request.queryParam("sort");
+        if (limit.isEmpty() && cursor.isEmpty() && sort.isEmpty()) {
+            boolean ndjson = request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+            return ServerResponse.ok()
+                    .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                    .body(studentRepository.findAll(), Student.class);
+        }
+        try {
+            StudentSort studentSort = StudentSort.fromParameter(sort.orElse(null));
+            StudentCursor after = cursor.isEmpty()
+                    ? new StudentCursor(studentSort, "", 0)
+                    : StudentCursor.decode(cursor.get(), studentSort);
+            int pageSize = limit.isEmpty() ? defaultPageSize : Math.max(1, Math.min(Integer.parseInt(limit.get()), maxPageSize));
+
+            // Fetch one extra student to know whether there is a next page
+            Flux<Student> students = switch (studentSort) {
+                case ID -> studentRepository.findByIdGreaterThan(after.lastId(), pageSize + 1);
+                case LASTNAME -> studentRepository.findPageByLastnameAfter(after.lastValue(), after.lastId(), pageSize + 1);
+                case EMAIL -> studentRepository.findByEmailGreaterThan(after.lastValue(), pageSize + 1);
+            };
+            return students.collectList()
+                    .flatMap(page -> ServerResponse.ok().bodyValue(toPage(page, studentSort, pageSize)));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static StudentPage toPage(List<Student> students, StudentSort sort, int pageSize) {
+        if (students.size() <= pageSize) {
+            return new StudentPage(students, null);
+        }
+        List<Student> page = students.subList(0, pageSize);
+        return new StudentPage(page, StudentCursor.after(sort, page.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * The strong ETag of a student, the same one the servlet API issues.
+     */
+    private static String eTag(Student student) {
+        return "\"" + student.getVersion() + "\"";
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).contentType(MediaType.TEXT_PLAIN).bodyValue("Error: " + message);
+    }
+}
@@ -0,0 +1,117 @@
+package gr.aueb.cf.studentapp.reactive;
+
+import gr.aueb.cf.studentapp.model.Student;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking, read-only access to the "students" table over R2DBC.
+ * Rows are mapped to the same {@link Student} model the JPA repository returns, so both APIs serialize
+ * students identically. The queries mirror those of
+ * {@link gr.aueb.cf.studentapp.repository.StudentRepository}; rows are emitted as they arrive, as fast
+ * as the subscriber requests them.
+ */
+public class ReactiveStudentRepository {
+
+    private static final String SELECT = "SELECT id, firstname, lastname, email, version, revision FROM students";
+
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    /**
+     * Constructs a ReactiveStudentRepository.
+     *
+     * @param databaseClient the client running the statements.
+     * @param fetchSize the number of rows fetched per round trip when reading the whole table.
+     */
+    public ReactiveStudentRepository(DatabaseClient databaseClient, int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Finds a student by ID.
+     *
+     * @param id the ID of the student.
+     * @return the student, or empty if there is none with this ID.
+     */
+    public Mono<Student> findById(long id) {
+        return databaseClient.sql(SELECT + " WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveStudentRepository::toStudent)
+                .one();
+    }
+
+    /**
+     * Streams all students in ID order. The driver fetches the rows in batches rather than all at once,
+     * so memory use does not grow with the size of the table.
+     *
+     * @return the students, in ascending ID order.
+     */
+    public Flux<Student> findAll() {
+        return databaseClient.sql(SELECT + " ORDER BY id ASC")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveStudentRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Finds the next page of students ordered by ID (keyset pagination).
+     *
+     * @param id the ID of the last student of the previous page, or 0 for the first page.
+     * @param limit the maximum number of students.
+     * @return the students with a greater ID, in ascending ID order.
+     */
+    public Flux<Student> findByIdGreaterThan(long id, int limit) {
+        return databaseClient.sql(SELECT + " WHERE id > :id ORDER BY id ASC LIMIT :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactiveStudentRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Finds the next page of students ordered by last name, then ID (keyset pagination).
+     *
+     * @param lastname the last name of the last student of the previous page, or "" for the first page.
+     * @param id the ID of the last student of the previous page, or 0 for the first page.
+     * @param limit the maximum number of students.
+     * @return the students after the given position, in ascending last name and ID order.
+     */
+    public Flux<Student> findPageByLastnameAfter(String lastname, long id, int limit) {
+        return databaseClient.sql(SELECT + " WHERE lastname >= :lastname AND (lastname > :lastname OR id > :id) " +
+                        "ORDER BY lastname ASC, id ASC LIMIT :limit")
+                .bind("lastname", lastname)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(ReactiveStudentRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Finds the next page of students ordered by email (keyset pagination).
+     *
+     * @param email the email of the last student of the previous page, or "" for the first page.
+     * @param limit the maximum number of students.
+     * @return the students with a greater email, in ascending email order.
+     */
+    public Flux<Student> findByEmailGreaterThan(String email, int limit) {
+        return databaseClient.sql(SELECT + " WHERE email > :email ORDER BY email ASC LIMIT :limit")
+                .bind("email", email)
+                .bind("limit", limit)
+                .map(ReactiveStudentRepository::toStudent)
+                .all();
+    }
+
+    private static Student toStudent(Readable row) {
+        return new Student(
+                row.get("id", Long.class),
+                row.get("firstname", String.class),
+                row.get("lastname", String.class),
+                row.get("email", String.class),
+                row.get("version", Long.class),
+                row.get("revision", Long.class));
+    }
+}
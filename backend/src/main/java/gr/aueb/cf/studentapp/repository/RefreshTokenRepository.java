@@ -0,0 +1,54 @@
+package gr.aueb.cf.studentapp.repository;
+
+import gr.aueb.cf.studentapp.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository interface for RefreshToken entity.
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Finds a refresh token by the digest of the opaque token.
+     *
+     * @param tokenHash the digest of the token.
+     * @return an Optional containing the found RefreshToken or empty if not found.
+     */
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Deletes a refresh token by the digest of the opaque token.
+     * Used to consume a token, since only one concurrent caller can delete the row.
+     *
+     * @param tokenHash the digest of the token.
+     * @return the number of deleted tokens (0 or 1).
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.tokenHash = :tokenHash")
+    int deleteByTokenHash(String tokenHash);
+
+    /**
+     * Deletes all refresh tokens of a user.
+     *
+     * @param username the username of the user.
+     * @return the number of deleted tokens.
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.username = :username")
+    int deleteByUsername(String username);
+
+    /**
+     * Deletes all refresh tokens that expired before the given instant.
+     *
+     * @param instant the instant to compare against.
+     * @return the number of deleted tokens.
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < :instant")
+    int deleteByExpiresAtBefore(Instant instant);
+}
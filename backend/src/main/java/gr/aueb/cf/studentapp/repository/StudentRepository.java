@@ -1,9 +1,17 @@
 package gr.aueb.cf.studentapp.repository;
 
 import gr.aueb.cf.studentapp.model.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for interacting with the Student entity in the database.
@@ -18,4 +26,71 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
      * @return an Optional containing the Student entity if found, or empty if not.
      */
     Optional<Student> findByEmail(String email);
+
+    /**
+     * Finds which of the given email addresses already belong to a student.
+     *
+     * @param emails the email addresses to check.
+     * @return the email addresses that are in use, as stored in the database.
+     */
+    @Query("SELECT s.email FROM Student s WHERE s.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Finds the next page of students ordered by ID (keyset pagination).
+     *
+     * @param id the ID of the last student of the previous page, or 0 for the first page.
+     * @param pageable the page size; the page number must be 0.
+     * @return the students with a greater ID, in ascending ID order.
+     */
+    List<Student> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Finds the next page of students ordered by last name, then ID (keyset pagination).
+     *
+     * @param lastname the last name of the last student of the previous page, or "" for the first page.
+     * @param id the ID of the last student of the previous page, or 0 for the first page.
+     * @param pageable the page size; the page number must be 0.
+     * @return the students after the given position, in ascending last name and ID order.
+     */
+    @Query("SELECT s FROM Student s WHERE s.lastname >= :lastname AND (s.lastname > :lastname OR s.id > :id) " +
+            "ORDER BY s.lastname ASC, s.id ASC")
+    List<Student> findPageByLastnameAfter(String lastname, Long id, Pageable pageable);
+
+    /**
+     * Finds the next page of students ordered by email (keyset pagination). Emails are unique,
+     * so no ID tie-breaker is needed.
+     *
+     * @param email the email of the last student of the previous page, or "" for the first page.
+     * @param pageable the page size; the page number must be 0.
+     * @return the students with a greater email, in ascending email order.
+     */
+    List<Student> findByEmailGreaterThanOrderByEmailAsc(String email, Pageable pageable);
+
+    /**
+     * Finds the next changed students in (revision, ID) order, up to a revision.
+     *
+     * @param revision the revision of the last change already returned.
+     * @param id the ID of the last student already returned at that revision.
+     * @param upTo the highest revision to include.
+     * @param pageable the page size; the page number must be 0.
+     * @return the students changed after the given position, in ascending revision and ID order.
+     */
+    @Query("SELECT s FROM Student s WHERE s.revision <= :upTo AND s.revision >= :revision " +
+            "AND (s.revision > :revision OR s.id > :id) ORDER BY s.revision ASC, s.id ASC")
+    List<Student> findChangesAfter(long revision, long id, long upTo, Pageable pageable);
+
+    /**
+     * Streams all students in ID order through a forward-only cursor, fetching rows in batches
+     * instead of materializing the whole table. Must be consumed inside a transaction and closed.
+     * The entities are read-only, so Hibernate keeps no snapshots of them.
+     *
+     * @return a stream of all students.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Student s ORDER BY s.id ASC")
+    Stream<Student> streamAllByOrderByIdAsc();
 }
@@ -0,0 +1,27 @@
+package gr.aueb.cf.studentapp.repository;
+
+import gr.aueb.cf.studentapp.model.StudentTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * Repository interface for StudentTombstone entity.
+ */
+public interface StudentTombstoneRepository extends JpaRepository<StudentTombstone, Long> {
+
+    /**
+     * Finds the next deletions in (revision, student ID) order, up to a revision.
+     *
+     * @param revision the revision of the last change already returned.
+     * @param studentId the student ID of the last change already returned at that revision.
+     * @param upTo the highest revision to include.
+     * @param pageable the page size; the page number must be 0.
+     * @return the deletions after the given position, in ascending revision and student ID order.
+     */
+    @Query("SELECT t FROM StudentTombstone t WHERE t.revision <= :upTo AND t.revision >= :revision " +
+            "AND (t.revision > :revision OR t.studentId > :studentId) ORDER BY t.revision ASC, t.studentId ASC")
+    List<StudentTombstone> findChangesAfter(long revision, long studentId, long upTo, Pageable pageable);
+}
@@ -2,7 +2,10 @@ package gr.aueb.cf.studentapp.repository;
 
 import gr.aueb.cf.studentapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,4 +21,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return an Optional containing the found User or empty if not found.
      */
     Optional<User> findByUsername(String username);
+
+    /**
+     * Replaces the password hash of a user, leaving every other column as it is in the database,
+     * so a concurrent change to the user is never overwritten.
+     *
+     * @param username the username of the user.
+     * @param password the new password hash.
+     * @return the number of updated users (0 or 1).
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(String username, String password);
+
+    /**
+     * Finds the username, ID and token version of every user, without loading the full entities.
+     *
+     * @return a list with the token version of each user.
+     */
+    @Query("SELECT u.username AS username, u.id AS id, u.tokenVersion AS tokenVersion FROM User u")
+    List<UserTokenVersion> findAllTokenVersions();
+
+    /**
+     * Projection of a user's username, ID and token version.
+     */
+    interface UserTokenVersion {
+        String getUsername();
+        Long getId();
+        int getTokenVersion();
+    }
 }
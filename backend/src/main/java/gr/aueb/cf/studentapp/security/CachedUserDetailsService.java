@@ -0,0 +1,115 @@
+package gr.aueb.cf.studentapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * UserDetailsService that keeps recently loaded users in a bounded cache with a time-to-live.
+ * Entries are evicted by {@link gr.aueb.cf.studentapp.service.UserService} whenever a user is
+ * created, updated or deleted, so the cache never serves a stale role or password. A user loaded
+ * while it is being evicted is not kept: every eviction bumps a generation, striped by username, and a
+ * load whose generation changed meanwhile removes what it cached.
+ * Lookups are timed as a whole, and the loads from the delegate on their own.
+ */
+public class CachedUserDetailsService implements UserDetailsService {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserDetailsService delegate;
+    private final Cache<String, UserDetails> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final Timer lookupTimer;
+    private final Timer loadTimer;
+
+    /**
+     * Constructs a CachedUserDetailsService and registers its statistics and timers as metrics.
+     *
+     * @param delegate the service that loads users from the database on a cache miss.
+     * @param maximumSize the maximum number of cached users.
+     * @param timeToLive how long a loaded user stays in the cache.
+     * @param meterRegistry the registry the cache statistics and timers are published to.
+     */
+    public CachedUserDetailsService(UserDetailsService delegate, long maximumSize, Duration timeToLive,
+                                    MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.details");
+        this.lookupTimer = Timer.builder("users.details.lookup")
+                .description("Time to look up a user, from the cache or the database")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("users.details.load")
+                .description("Time to load a user from the database on a cache miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load a user from the cache, or from the delegate on a cache miss.
+     * Unknown usernames are not cached.
+     *
+     * @param username the username of the user.
+     * @return a copy of the cached user details.
+     * @throws UsernameNotFoundException if the user does not exist.
+     */
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return lookupTimer.record(() -> {
+            // Loaded outside the cache, so no map lock is held during the query, which would pin a virtual thread.
+            // Concurrent misses for the same user may load it twice, which is harmless.
+            UserDetails cached = cache.getIfPresent(username);
+            if (cached == null) {
+                int stripe = stripe(username);
+                long generation = generations.get(stripe);
+                cached = loadTimer.record(() -> delegate.loadUserByUsername(username));
+                cache.put(username, cached);
+                // An eviction since the load started may have missed this entry, which can then be stale.
+                // An eviction after this check removes the entry itself.
+                if (generations.get(stripe) != generation) {
+                    cache.asMap().remove(username, cached);
+                }
+            }
+            // Return a copy, because the authentication manager erases the credentials of the instance it is given
+            return User.withUserDetails(cached).build();
+        });
+    }
+
+    /**
+     * Get a user from the cache only, without ever loading it. Lets callers that must not block,
+     * such as the reactive read API, skip handing the lookup off to another thread on a cache hit.
+     *
+     * @param username the username of the user.
+     * @return a copy of the cached user details, or null if the user is not cached.
+     */
+    public UserDetails getIfCached(String username) {
+        UserDetails cached = cache.getIfPresent(username);
+        return cached == null ? null : User.withUserDetails(cached).build();
+    }
+
+    /**
+     * Remove a user from the cache.
+     *
+     * @param username the username of the user.
+     */
+    public void evict(String username) {
+        generations.incrementAndGet(stripe(username));
+        cache.invalidate(username);
+    }
+
+    private static int stripe(String username) {
+        int hash = username.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,89 @@
+package gr.aueb.cf.studentapp.security;
+
+import gr.aueb.cf.studentapp.security.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Throttles login attempts per username and per client address before any password hashing runs,
+ * so a credential-stuffing run cannot pin every core with BCrypt work.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final TokenBucketLimiter usernameLimiter;
+    private final TokenBucketLimiter clientLimiter;
+    private final Counter admittedCounter;
+    private final Counter rejectedByUsernameCounter;
+    private final Counter rejectedByClientCounter;
+
+    /**
+     * Constructs a LoginRateLimiter and registers its metrics.
+     *
+     * @param enabled whether login attempts are throttled at all.
+     * @param usernameCapacity the burst of attempts allowed per username.
+     * @param usernameRefillSeconds the seconds it takes for one username attempt to become available again.
+     * @param clientCapacity the burst of attempts allowed per client address.
+     * @param clientRefillSeconds the seconds it takes for one client attempt to become available again.
+     * @param maximumKeys the maximum number of usernames and of client addresses tracked.
+     * @param idleSeconds the seconds after which an unused bucket is forgotten.
+     * @param meterRegistry the registry the admitted and rejected counters are published to.
+     */
+    public LoginRateLimiter(@Value("${login.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${login.rate-limit.username.capacity:5}") int usernameCapacity,
+                            @Value("${login.rate-limit.username.refill-seconds:12}") long usernameRefillSeconds,
+                            @Value("${login.rate-limit.client.capacity:20}") int clientCapacity,
+                            @Value("${login.rate-limit.client.refill-seconds:1}") long clientRefillSeconds,
+                            @Value("${login.rate-limit.maximum-keys:100000}") long maximumKeys,
+                            @Value("${login.rate-limit.idle-seconds:600}") long idleSeconds,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        Duration idleTimeout = Duration.ofSeconds(idleSeconds);
+        this.usernameLimiter = new TokenBucketLimiter(usernameCapacity, Duration.ofSeconds(usernameRefillSeconds),
+                maximumKeys, idleTimeout);
+        this.clientLimiter = new TokenBucketLimiter(clientCapacity, Duration.ofSeconds(clientRefillSeconds),
+                maximumKeys, idleTimeout);
+
+        this.admittedCounter = Counter.builder("login.rate-limit.admitted")
+                .description("Login attempts admitted by the rate limiter")
+                .register(meterRegistry);
+        this.rejectedByUsernameCounter = Counter.builder("login.rate-limit.rejected")
+                .description("Login attempts rejected by the rate limiter")
+                .tag("limit", "username")
+                .register(meterRegistry);
+        this.rejectedByClientCounter = Counter.builder("login.rate-limit.rejected")
+                .description("Login attempts rejected by the rate limiter")
+                .tag("limit", "client")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Try to admit a login attempt.
+     *
+     * @param username the username the attempt is made for.
+     * @param clientAddress the address of the client making the attempt.
+     * @return 0 if the attempt is admitted, otherwise the number of seconds the client should wait.
+     */
+    public long tryAcquire(String username, String clientAddress) {
+        if (!enabled) {
+            return 0;
+        }
+        long wait = clientLimiter.tryAcquire(clientAddress);
+        if (wait > 0) {
+            rejectedByClientCounter.increment();
+            return TokenBucketLimiter.toRetryAfterSeconds(wait);
+        }
+        wait = usernameLimiter.tryAcquire(username);
+        if (wait > 0) {
+            rejectedByUsernameCounter.increment();
+            return TokenBucketLimiter.toRetryAfterSeconds(wait);
+        }
+        admittedCounter.increment();
+        return 0;
+    }
+}
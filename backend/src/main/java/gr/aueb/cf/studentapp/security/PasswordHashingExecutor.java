@@ -0,0 +1,108 @@
+package gr.aueb.cf.studentapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, separately sized executor for CPU-heavy password verification.
+ * Keeps BCrypt work off the Tomcat request threads and bounds how much of it can queue up,
+ * so a login burst is rejected early instead of starving every other endpoint.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Timer waitTimer;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * The number of seconds clients are asked to wait before retrying when the executor is saturated.
+     */
+    @Getter
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a PasswordHashingExecutor and registers its metrics.
+     *
+     * @param threads the number of hashing threads, or 0 for one per available processor.
+     * @param queueCapacity the maximum number of verifications waiting for a thread.
+     * @param retryAfterSeconds the Retry-After value returned when the executor is saturated.
+     * @param meterRegistry the registry the executor metrics are published to.
+     */
+    public PasswordHashingExecutor(@Value("${login.executor.threads:0}") int threads,
+                                   @Value("${login.executor.queue-capacity:100}") int queueCapacity,
+                                   @Value("${login.executor.retry-after-seconds:1}") long retryAfterSeconds,
+                                   MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("login.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password verifications waiting for a hashing thread")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("login.hashing.wait")
+                .description("Time a password verification waited for a hashing thread")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("login.hashing.duration")
+                .description("Time spent verifying a password")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("login.hashing.rejected")
+                .description("Password verifications rejected because the executor was saturated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submit a password verification task.
+     *
+     * @param task the task performing the verification.
+     * @return a future completed with the result of the task.
+     * @throws RejectedExecutionException if all hashing threads are busy and the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(task);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the hashing threads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Names the hashing threads so they are easy to tell apart in thread dumps.
+     */
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
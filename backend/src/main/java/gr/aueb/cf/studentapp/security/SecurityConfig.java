@@ -3,6 +3,10 @@ package gr.aueb.cf.studentapp.security;
 import gr.aueb.cf.studentapp.repository.UserRepository;
 import gr.aueb.cf.studentapp.security.filters.JwtAuthorizationFilter;
 import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -11,7 +15,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -19,7 +23,9 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Security configuration class for setting up JWT-based authentication and authorization.
@@ -58,14 +64,21 @@ public class SecurityConfig {
 
                 // Configure authorization rules
                 .authorizeHttpRequests(auth -> auth
+                        // Completion of a streaming response, the request itself was authorized already
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/users").permitAll()
                         .requestMatchers("/api/login").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/token/refresh").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/users").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/api/students").hasAnyAuthority("ROLE_USER", "ROLE_ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/students", "/api/students/search", "/api/students/changes",
+                                "/api/students/events").hasAnyAuthority("ROLE_USER", "ROLE_ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/students/export").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/users/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/users/**").hasAuthority("ROLE_ADMIN")
-                        .requestMatchers(HttpMethod.POST, "/api/students").hasAuthority("ROLE_ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/students", "/api/students/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/students/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/students/**").hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated()
@@ -79,13 +92,20 @@ public class SecurityConfig {
 
     /**
      * Configures the UserDetailsService for loading user details.
+     * Loaded users are kept in a bounded cache that UserService evicts on every change.
      *
      * @param userRepository the repository for accessing user data.
-     * @return a UserDetailsService instance.
+     * @param maximumSize the maximum number of cached users.
+     * @param timeToLiveSeconds how long a loaded user stays in the cache, in seconds.
+     * @param meterRegistry the registry the cache statistics are published to.
+     * @return a CachedUserDetailsService instance.
      */
     @Bean
-    public UserDetailsService userDetailsService(UserRepository userRepository) {
-        return username -> userRepository.findByUsername(username)
+    public CachedUserDetailsService userDetailsService(UserRepository userRepository,
+                                                       @Value("${users.cache.maximum-size:1000}") long maximumSize,
+                                                       @Value("${users.cache.ttl-seconds:300}") long timeToLiveSeconds,
+                                                       MeterRegistry meterRegistry) {
+        UserDetailsService delegate = username -> userRepository.findByUsername(username)
                 .map(user -> {
                     if (user.getRole() == null) {
                         throw new IllegalArgumentException("Role cannot be null for user: " + username);
@@ -97,6 +117,7 @@ public class SecurityConfig {
                     );
                 })
                 .orElseThrow(() -> new org.springframework.security.core.userdetails.UsernameNotFoundException("User not found: " + username));
+        return new CachedUserDetailsService(delegate, maximumSize, Duration.ofSeconds(timeToLiveSeconds), meterRegistry);
     }
 
     /**
@@ -113,12 +134,31 @@ public class SecurityConfig {
 
     /**
      * Configures the password encoder for encrypting passwords.
+     * New hashes are prefixed with their encoder id; hashes stored without a prefix or with a
+     * different BCrypt cost are re-encoded by UserService the next time the user logs in.
+     * The cost in use, configured or calibrated, is published as password.bcrypt.strength.
      *
+     * @param strength the BCrypt cost factor, used unless calibration is enabled.
+     * @param calibrate whether to measure the cost factor on startup instead.
+     * @param targetMillis the target verification latency used by calibration, in milliseconds.
+     * @param meterRegistry the registry the cost factor is published to.
      * @return a PasswordEncoder instance.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password.bcrypt.strength:10}") int strength,
+                                           @Value("${password.bcrypt.calibrate:false}") boolean calibrate,
+                                           @Value("${password.bcrypt.target-millis:250}") long targetMillis,
+                                           MeterRegistry meterRegistry) {
+        int effectiveStrength = calibrate ? UpgradableBCryptPasswordEncoder.calibrateStrength(targetMillis) : strength;
+        Gauge.builder("password.bcrypt.strength", () -> effectiveStrength)
+                .description("BCrypt cost factor new password hashes are encoded with")
+                .tag("calibrated", String.valueOf(calibrate))
+                .register(meterRegistry);
+        PasswordEncoder bcrypt = new UpgradableBCryptPasswordEncoder(effectiveStrength);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt); // Hashes stored before the prefix was introduced
+        return encoder;
     }
 
     /**
@@ -128,15 +168,23 @@ public class SecurityConfig {
      */
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", corsConfiguration());
+        return source;
+    }
+
+    /**
+     * The CORS settings shared by the servlet API and the reactive read API.
+     *
+     * @return a new CorsConfiguration instance.
+     */
+    public static CorsConfiguration corsConfiguration() {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOrigins(List.of("http://localhost:4200"));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE"));
         config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
         config.setExposedHeaders(List.of("Authorization"));
         config.setAllowCredentials(true);
-
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", config);
-        return source;
+        return config;
     }
 }
@@ -0,0 +1,79 @@
+package gr.aueb.cf.studentapp.security;
+
+import gr.aueb.cf.studentapp.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory table of the current token version of every user.
+ * Used by the stateless authorization mode to reject tokens of users that were
+ * updated or deleted after the token was issued, without querying the database.
+ * Versions are kept together with the user ID: a user registered later under the same username
+ * starts over at version 0, and must not inherit the tokens of the earlier one.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final UserRepository userRepository;
+    private final ConcurrentMap<String, CurrentVersion> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a TokenVersionRegistry.
+     *
+     * @param userRepository repository for loading the stored token versions.
+     */
+    public TokenVersionRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Loads the token version of every user before the application starts serving requests.
+     */
+    @PostConstruct
+    public void load() {
+        userRepository.findAllTokenVersions()
+                .forEach(entry -> versions.put(entry.getUsername(), new CurrentVersion(entry.getId(), entry.getTokenVersion())));
+    }
+
+    /**
+     * Record the current token version of a user.
+     *
+     * @param username the username of the user.
+     * @param userId the ID of the user.
+     * @param tokenVersion the current token version of the user.
+     */
+    public void update(String username, long userId, int tokenVersion) {
+        versions.put(username, new CurrentVersion(userId, tokenVersion));
+    }
+
+    /**
+     * Forget a user, which revokes all of their tokens.
+     *
+     * @param username the username of the user.
+     */
+    public void remove(String username) {
+        versions.remove(username);
+    }
+
+    /**
+     * Check if a token was issued to the current user with the given username, at its current version.
+     *
+     * @param username the username of the user.
+     * @param userId the user ID carried by the token.
+     * @param tokenVersion the token version carried by the token.
+     * @return true if the user exists, has the given ID and the version is current, false otherwise.
+     */
+    public boolean isCurrent(String username, long userId, int tokenVersion) {
+        CurrentVersion current = versions.get(username);
+        return current != null && current.userId() == userId && current.tokenVersion() == tokenVersion;
+    }
+
+    /**
+     * The ID and current token version of the user holding a username.
+     */
+    private record CurrentVersion(long userId, int tokenVersion) {
+    }
+}
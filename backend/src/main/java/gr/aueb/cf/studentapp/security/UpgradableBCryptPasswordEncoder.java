@@ -0,0 +1,72 @@
+package gr.aueb.cf.studentapp.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt password encoder that asks for a hash to be re-encoded whenever its cost factor
+ * differs from the configured one, in either direction. Together with the
+ * UserDetailsPasswordService implemented by UserService, this lets the cost be raised or
+ * lowered without invalidating stored hashes: each user is migrated on their next login.
+ */
+public class UpgradableBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 16;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final int strength;
+
+    /**
+     * Constructs an UpgradableBCryptPasswordEncoder.
+     *
+     * @param strength the BCrypt cost factor (log rounds) to encode new hashes with.
+     */
+    public UpgradableBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    /**
+     * Check if a hash was encoded with a different cost factor than the configured one.
+     *
+     * @param encodedPassword the stored hash.
+     * @return true if the hash should be re-encoded, false otherwise.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    /**
+     * Find the highest cost factor whose verification still completes within the target latency
+     * on the current hardware. Each step doubles the work, so the result is within a factor of two
+     * of the target.
+     *
+     * @param targetMillis the target verification latency in milliseconds.
+     * @return the calibrated cost factor.
+     */
+    public static int calibrateStrength(long targetMillis) {
+        int chosen = MIN_STRENGTH;
+        for (int candidate = MIN_STRENGTH; candidate <= MAX_STRENGTH; candidate++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(candidate);
+            String hash = encoder.encode(CALIBRATION_PASSWORD);
+            encoder.matches(CALIBRATION_PASSWORD, hash); // warm-up
+            long start = System.nanoTime();
+            encoder.matches(CALIBRATION_PASSWORD, hash);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (elapsedMillis > targetMillis) {
+                break;
+            }
+            chosen = candidate;
+        }
+        return chosen;
+    }
+}
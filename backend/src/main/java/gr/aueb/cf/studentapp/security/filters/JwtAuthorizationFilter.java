@@ -1,11 +1,18 @@
 package gr.aueb.cf.studentapp.security.filters;
 
 import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.security.util.VerifiedToken;
+import gr.aueb.cf.studentapp.security.util.VerifiedTokenCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,6 +21,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * JWT Authorization filter for handling token verification.
@@ -22,17 +30,29 @@ import java.io.IOException;
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final boolean stateless;
 
     /**
      * Constructs a JwtAuthorizationFilter with the required dependencies.
      *
      * @param jwtUtil utility for generating and validating JWT tokens.
+     * @param verifiedTokenCache cache of already verified tokens.
      * @param userDetailsService service for loading user details.
+     * @param tokenVersionRegistry table of current token versions, used in stateless mode.
+     * @param stateless whether to authenticate from the token claims alone, without loading the user.
      */
-    public JwtAuthorizationFilter(@Lazy JwtUtil jwtUtil, @Lazy UserDetailsService userDetailsService) {
+    public JwtAuthorizationFilter(@Lazy JwtUtil jwtUtil, @Lazy VerifiedTokenCache verifiedTokenCache,
+                                  @Lazy UserDetailsService userDetailsService,
+                                  @Lazy TokenVersionRegistry tokenVersionRegistry,
+                                  @Value("${jwt.stateless:false}") boolean stateless) {
         this.jwtUtil = jwtUtil;
+        this.verifiedTokenCache = verifiedTokenCache;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.stateless = stateless;
     }
 
     /**
@@ -66,18 +86,25 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         String token = header.substring(7);
 
         try {
-            // Extract the username from the token
-            String username = jwtUtil.extractUsername(token);
+            // Verify the token once (or reuse an earlier verification) and keep its claims for the rest of the request
+            VerifiedToken verifiedToken = verifiedTokenCache.verify(token);
+            String username = verifiedToken.getSubject();
 
             // Validate the token and authenticate the user if valid
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                var userDetails = userDetailsService.loadUserByUsername(username);
+                if (stateless) {
+                    // Trust the verified claims, as long as the user has not changed since the token was issued
+                    if (tokenVersionRegistry.isCurrent(username, verifiedToken.getUserId(),
+                            verifiedToken.getTokenVersion())) {
+                        var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + verifiedToken.getRole()));
+                        authenticate(request, new User(username, "", authorities), verifiedToken);
+                    }
+                } else {
+                    var userDetails = userDetailsService.loadUserByUsername(username);
 
-                if (jwtUtil.validateToken(token, userDetails)) {
-                    var authenticationToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                    if (jwtUtil.validateToken(verifiedToken, userDetails)) {
+                        authenticate(request, userDetails, verifiedToken);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -90,4 +117,20 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         // Continue the filter chain
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Stores an authenticated token for the given user in the security context,
+     * and the verified token in the request for handlers that depend on its claims.
+     *
+     * @param request the HTTP request.
+     * @param userDetails the authenticated user.
+     * @param verifiedToken the verified token the user authenticated with.
+     */
+    private void authenticate(HttpServletRequest request, UserDetails userDetails, VerifiedToken verifiedToken) {
+        var authenticationToken = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        request.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verifiedToken);
+    }
 }
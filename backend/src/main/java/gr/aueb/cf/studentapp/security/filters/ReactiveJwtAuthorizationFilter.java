@@ -0,0 +1,142 @@
+package gr.aueb.cf.studentapp.security.filters;
+
+import gr.aueb.cf.studentapp.security.CachedUserDetailsService;
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import gr.aueb.cf.studentapp.security.util.JwtUtil;
+import gr.aueb.cf.studentapp.security.util.VerifiedToken;
+import gr.aueb.cf.studentapp.security.util.VerifiedTokenCache;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link JwtAuthorizationFilter}, used by the reactive read API.
+ * Tokens are verified through the same cache and checked the same way; the only difference is that
+ * a user missing from the user details cache is loaded on a worker thread, so the event loop never
+ * waits for the database.
+ */
+public class ReactiveJwtAuthorizationFilter implements WebFilter {
+
+    private static final byte[] INVALID_TOKEN = "Unauthorized: Invalid token".getBytes(StandardCharsets.UTF_8);
+
+    private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final CachedUserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final boolean stateless;
+
+    /**
+     * Constructs a ReactiveJwtAuthorizationFilter with the required dependencies.
+     *
+     * @param jwtUtil utility for validating JWT tokens.
+     * @param verifiedTokenCache cache of already verified tokens.
+     * @param userDetailsService service for loading user details.
+     * @param tokenVersionRegistry table of current token versions, used in stateless mode.
+     * @param stateless whether to authenticate from the token claims alone, without loading the user.
+     */
+    public ReactiveJwtAuthorizationFilter(JwtUtil jwtUtil, VerifiedTokenCache verifiedTokenCache,
+                                          CachedUserDetailsService userDetailsService,
+                                          TokenVersionRegistry tokenVersionRegistry, boolean stateless) {
+        this.jwtUtil = jwtUtil;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.userDetailsService = userDetailsService;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.stateless = stateless;
+    }
+
+    /**
+     * Verifies and authenticates the JWT token of the exchange, if present.
+     *
+     * @param exchange the current exchange.
+     * @param chain the filter chain.
+     * @return completion of the rest of the chain, or of the unauthorized response if the token is invalid.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        // Check if the Authorization header contains a Bearer token
+        if (header == null || !header.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+
+        String token = header.substring(7);
+
+        return Mono.fromCallable(() -> verifiedTokenCache.verify(token))
+                .flatMap(this::authenticate)
+                .map(ReactiveSecurityContextHolder::withAuthentication)
+                .defaultIfEmpty(Context.empty())
+                // Handle invalid token cases; the response is complete, so the chain is not continued
+                .onErrorResume(e -> unauthorized(exchange.getResponse()).then(Mono.empty()))
+                .flatMap(securityContext -> chain.filter(exchange).contextWrite(securityContext));
+    }
+
+    /**
+     * Authenticates the subject of a verified token.
+     *
+     * @param verifiedToken the verified token.
+     * @return the authentication, or empty if the token does not authenticate its subject.
+     */
+    private Mono<Authentication> authenticate(VerifiedToken verifiedToken) {
+        String username = verifiedToken.getSubject();
+        if (username == null) {
+            return Mono.empty();
+        }
+        if (stateless) {
+            // Trust the verified claims, as long as the user has not changed since the token was issued
+            if (!tokenVersionRegistry.isCurrent(username, verifiedToken.getUserId(),
+                    verifiedToken.getTokenVersion())) {
+                return Mono.empty();
+            }
+            var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + verifiedToken.getRole()));
+            return Mono.just(authenticated(new User(username, "", authorities)));
+        }
+
+        UserDetails cached = userDetailsService.getIfCached(username);
+        Mono<UserDetails> userDetails = cached != null
+                ? Mono.just(cached)
+                : Mono.fromCallable(() -> userDetailsService.loadUserByUsername(username))
+                        .subscribeOn(Schedulers.boundedElastic());
+        return userDetails
+                .filter(user -> jwtUtil.validateToken(verifiedToken, user))
+                .map(this::authenticated);
+    }
+
+    /**
+     * Creates an authenticated token for the given user.
+     *
+     * @param userDetails the authenticated user.
+     * @return the authentication.
+     */
+    private Authentication authenticated(UserDetails userDetails) {
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+
+    /**
+     * Answers the exchange with the same response as the servlet filter gives an invalid token.
+     *
+     * @param response the response of the exchange.
+     * @return completion of the write.
+     */
+    private Mono<Void> unauthorized(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        DataBuffer body = response.bufferFactory().wrap(INVALID_TOKEN);
+        return response.writeWith(Mono.just(body));
+    }
+}
@@ -1,12 +1,21 @@
 package gr.aueb.cf.studentapp.security.util;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
 import java.util.*;
 
 /**
@@ -15,8 +24,17 @@ import java.util.*;
 @Component
 public class JwtUtil {
 
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] ENCODED_HEADER_AND_DOT =
+            (BASE64_URL.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII)) + ".")
+                    .getBytes(StandardCharsets.US_ASCII);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final SecretKey secretKey;
     private final long expirationTime;
+    private final JwtParser parser;
+    private final ThreadLocal<TokenWriter> tokenWriters;
 
     /**
      * Constructor with secret and expiration time injection.
@@ -31,36 +49,114 @@ public class JwtUtil {
         }
         this.secretKey = Keys.hmacShaKeyFor(keyBytes);
         this.expirationTime = expirationTime;
+        // JwtParser is immutable and thread-safe, so it is built once and shared by all requests
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
+        // Tokens are signed with HS256 using the raw key bytes, as the parser expects
+        SecretKey signingKey = new SecretKeySpec(secretKey.getEncoded(), HMAC_SHA_256);
+        this.tokenWriters = ThreadLocal.withInitial(() -> new TokenWriter(signingKey));
     }
 
     /**
-     * Generate a new JWT token for a given username and role.
+     * Generate a new JWT token for a given username, role, user ID and token version.
+     * The ID tells the user apart from any later user with the same username, whose token versions start over.
      *
      * @param username the username to be included in the token.
      * @param role the role to be included in the token.
+     * @param userId the ID of the user.
+     * @param tokenVersion the current token version of the user.
      * @return a JWT token as a String.
      */
-    public String generateToken(String username, String role) {
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role);  // Add the role to the token
-        return createToken(claims, username);
+    public String generateToken(String username, String role, long userId, int tokenVersion) {
+        return createToken(username, role, userId, tokenVersion);
     }
 
     /**
      * Private helper method to create the token.
+     * The header never changes, so it is encoded once; the claims are streamed straight into a
+     * thread-confined buffer and signed with a thread-confined Mac, so minting allocates little
+     * beyond the token itself.
      *
-     * @param claims a map of claims to include in the token.
      * @param subject the subject (typically the username) for the token.
+     * @param role the role to be included in the token.
+     * @param userId the user ID to be included in the token.
+     * @param tokenVersion the token version to be included in the token.
      * @return a JWT token as a String.
      */
-    private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(subject)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(secretKey, SignatureAlgorithm.HS256)
-                .compact();
+    private String createToken(String subject, String role, long userId, int tokenVersion) {
+        long now = System.currentTimeMillis();
+        long issuedAtSeconds = now / 1000;
+        long expirationSeconds = (now + expirationTime) / 1000;
+        TokenWriter writer = tokenWriters.get();
+
+        try {
+            writer.buffer.reset();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer.buffer)) {
+                generator.writeStartObject();
+                generator.writeStringField("sub", subject);
+                generator.writeStringField("role", role);  // Add the role to the token
+                generator.writeNumberField("uid", userId);  // Add the user ID to the token
+                generator.writeNumberField("ver", tokenVersion);  // Add the token version to the token
+                generator.writeNumberField("iat", issuedAtSeconds);
+                generator.writeNumberField("exp", expirationSeconds);
+                generator.writeEndObject();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write token claims", e);
+        }
+
+        byte[] payload = BASE64_URL.encode(writer.buffer.toByteArray());
+        writer.mac.update(ENCODED_HEADER_AND_DOT);
+        writer.mac.update(payload);
+        byte[] signature = BASE64_URL.encode(writer.mac.doFinal());
+
+        byte[] token = new byte[ENCODED_HEADER_AND_DOT.length + payload.length + 1 + signature.length];
+        System.arraycopy(ENCODED_HEADER_AND_DOT, 0, token, 0, ENCODED_HEADER_AND_DOT.length);
+        System.arraycopy(payload, 0, token, ENCODED_HEADER_AND_DOT.length, payload.length);
+        token[ENCODED_HEADER_AND_DOT.length + payload.length] = '.';
+        System.arraycopy(signature, 0, token, ENCODED_HEADER_AND_DOT.length + payload.length + 1, signature.length);
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Per-thread state for minting tokens: an initialized Mac and a reusable claims buffer.
+     */
+    private static final class TokenWriter {
+
+        private final Mac mac;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+        private TokenWriter(SecretKey signingKey) {
+            try {
+                this.mac = Mac.getInstance(HMAC_SHA_256);
+                this.mac.init(signingKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+    }
+
+    /**
+     * Verify the signature and expiration of a token and return its claims.
+     * The token is parsed exactly once, using the parser built at construction time.
+     *
+     * @param token the JWT token.
+     * @return the verified claims of the token.
+     * @throws JwtException if the token is malformed, has an invalid signature or is expired.
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Long userId = claims.get("uid", Long.class);
+        Integer tokenVersion = claims.get("ver", Integer.class);
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                userId != null ? userId : 0,
+                tokenVersion != null ? tokenVersion : 0,
+                claims.getIssuedAt().toInstant(),
+                claims.getExpiration().toInstant()
+        );
     }
 
     /**
@@ -71,10 +167,7 @@ public class JwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
+            verify(token);
             return true;
         } catch (ExpiredJwtException e) {
             System.out.println("Token expired: " + e.getMessage());
@@ -92,8 +185,19 @@ public class JwtUtil {
      * @return true if the token is valid and belongs to the user, false otherwise.
      */
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(verify(token), userDetails);
+    }
+
+    /**
+     * Check if already verified claims belong to the provided user and are not expired.
+     *
+     * @param verifiedToken the verified claims of the token.
+     * @param userDetails the user details to match against the token.
+     * @return true if the claims belong to the user and are not expired, false otherwise.
+     */
+    public boolean validateToken(VerifiedToken verifiedToken, UserDetails userDetails) {
+        return verifiedToken.getSubject().equals(userDetails.getUsername())
+                && !verifiedToken.isExpiredAt(Instant.now());
     }
 
     /**
@@ -103,12 +207,7 @@ public class JwtUtil {
      * @return the username as a String.
      */
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return verify(token).getSubject();
     }
 
     /**
@@ -118,27 +217,6 @@ public class JwtUtil {
      * @return the role as a String.
      */
     public String extractRole(String token) {
-        return (String) Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role");
-    }
-
-    /**
-     * Check if the token is expired.
-     *
-     * @param token the JWT token.
-     * @return true if the token is expired, false otherwise.
-     */
-    private boolean isTokenExpired(String token) {
-        Date expiration = Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
-        return expiration.before(new Date());
+        return verify(token).getRole();
     }
 }
@@ -0,0 +1,70 @@
+package gr.aueb.cf.studentapp.security.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, per-key token bucket rate limiter.
+ * Each bucket is a single AtomicLong holding its theoretical arrival time (the GCRA form of a
+ * token bucket), updated with compare-and-set. Buckets are kept in a bounded table and evicted
+ * once idle, so memory stays bounded whatever the number of distinct keys.
+ */
+public class TokenBucketLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+    private final long refillIntervalNanos;
+    private final long burstNanos;
+
+    /**
+     * Constructs a TokenBucketLimiter.
+     *
+     * @param capacity the maximum number of attempts that can be made in a burst.
+     * @param refillInterval the time it takes for one attempt to become available again.
+     * @param maximumKeys the maximum number of tracked keys.
+     * @param idleTimeout how long an unused bucket is kept.
+     */
+    public TokenBucketLimiter(int capacity, Duration refillInterval, long maximumKeys, Duration idleTimeout) {
+        this.refillIntervalNanos = refillInterval.toNanos();
+        this.burstNanos = capacity * refillIntervalNanos;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    /**
+     * Try to take one attempt from the bucket of the given key.
+     *
+     * @param key the key to rate limit, such as a username or a client address.
+     * @return 0 if the attempt is admitted, otherwise the number of nanoseconds until it would be.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + refillIntervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Convert a wait returned by {@link #tryAcquire(String)} to whole seconds, rounded up.
+     *
+     * @param waitNanos the wait in nanoseconds.
+     * @return the wait in seconds.
+     */
+    public static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
@@ -0,0 +1,34 @@
+package gr.aueb.cf.studentapp.security.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Utility class for hashing tokens, so that raw tokens are never kept in memory or stored in the database.
+ */
+public final class TokenDigest {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private TokenDigest() {
+    }
+
+    /**
+     * Compute the Base64-encoded SHA-256 digest of a token.
+     *
+     * @param token the token.
+     * @return the digest as a 44-character String.
+     */
+    public static String sha256(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+}
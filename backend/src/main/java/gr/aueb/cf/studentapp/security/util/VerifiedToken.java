@@ -0,0 +1,58 @@
+package gr.aueb.cf.studentapp.security.util;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of the claims of a JWT whose signature has already been verified.
+ * Produced once per token by {@link JwtUtil#verify(String)} so callers never need to parse it again.
+ */
+@Value
+public class VerifiedToken {
+
+    /**
+     * The request attribute holding the token a request was authenticated with.
+     */
+    public static final String REQUEST_ATTRIBUTE = "gr.aueb.cf.studentapp.security.util.VerifiedToken";
+
+    /**
+     * The subject of the token (the username).
+     */
+    String subject;
+
+    /**
+     * The role claim written by {@link JwtUtil#generateToken(String, String, long, int)}.
+     */
+    String role;
+
+    /**
+     * The ID of the user the token was issued to, or 0 if the token carries none.
+     */
+    long userId;
+
+    /**
+     * The token version of the user at the time the token was issued.
+     */
+    int tokenVersion;
+
+    /**
+     * The instant the token was issued at.
+     */
+    Instant issuedAt;
+
+    /**
+     * The instant the token expires at.
+     */
+    Instant expiresAt;
+
+    /**
+     * Check if the token is expired at the given instant.
+     *
+     * @param now the instant to compare against.
+     * @return true if the token is expired, false otherwise.
+     */
+    public boolean isExpiredAt(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,128 @@
+package gr.aueb.cf.studentapp.security.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of verified tokens placed in front of {@link JwtUtil#verify(String)}.
+ * Repeat tokens skip signature verification and claim decoding; every entry expires
+ * at the expiration of its token, and the least valuable entries are evicted once
+ * the maximum size is reached. Every verification is timed, tagged with whether the token
+ * was served from the cache or parsed and verified.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final boolean enabled;
+    private final Cache<String, VerifiedToken> cache;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+    private final Timer disabledTimer;
+
+    /**
+     * Constructs a VerifiedTokenCache and registers its statistics and timers as metrics.
+     *
+     * @param jwtUtil utility for verifying tokens on a cache miss.
+     * @param enabled whether verified tokens are cached at all.
+     * @param maximumSize the maximum number of cached tokens.
+     * @param meterRegistry the registry the hit, miss and eviction counters and the timers are published to.
+     */
+    public VerifiedTokenCache(JwtUtil jwtUtil,
+                              @Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+                              MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+        this.hitTimer = verifyTimer("hit", meterRegistry);
+        this.missTimer = verifyTimer("miss", meterRegistry);
+        this.disabledTimer = verifyTimer("disabled", meterRegistry);
+    }
+
+    /**
+     * Verify a token, reusing the claims of an earlier verification of the same token when possible.
+     *
+     * @param token the JWT token.
+     * @return the verified claims of the token.
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, has an invalid signature or is expired.
+     */
+    public VerifiedToken verify(String token) {
+        long start = System.nanoTime();
+        if (!enabled) {
+            try {
+                return jwtUtil.verify(token);
+            } finally {
+                disabledTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        // Keyed by digest, so that raw bearer tokens are never kept in memory
+        String key = TokenDigest.sha256(token);
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (!cached.isExpiredAt(Instant.now())) {
+                hitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return cached;
+            }
+            // Expired before the cache got to it, so let the parser reject the token
+            cache.invalidate(key);
+        }
+        try {
+            VerifiedToken verifiedToken = jwtUtil.verify(token);
+            cache.put(key, verifiedToken);
+            return verifiedToken;
+        } finally {
+            missTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Remove all cached tokens.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static Timer verifyTimer(String cache, MeterRegistry meterRegistry) {
+        return Timer.builder("jwt.verify")
+                .description("Time to verify a token, including parsing and signature checks on a cache miss")
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Expires each entry at the expiration of its token.
+     */
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
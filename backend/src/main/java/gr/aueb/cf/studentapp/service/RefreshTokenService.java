@@ -0,0 +1,99 @@
+package gr.aueb.cf.studentapp.service;
+
+import gr.aueb.cf.studentapp.exceptions.InvalidRefreshTokenException;
+import gr.aueb.cf.studentapp.model.RefreshToken;
+import gr.aueb.cf.studentapp.repository.RefreshTokenRepository;
+import gr.aueb.cf.studentapp.security.util.TokenDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Service class for issuing, rotating and revoking opaque refresh tokens.
+ * Each refresh token can be used exactly once; using it returns a new one.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpirationTime;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Constructor-based dependency injection for RefreshTokenRepository.
+     *
+     * @param refreshTokenRepository repository for accessing refresh tokens.
+     * @param refreshExpirationTime the refresh token expiration time in milliseconds.
+     */
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-expiration:604800000}") long refreshExpirationTime) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpirationTime = refreshExpirationTime;
+    }
+
+    /**
+     * Issue a new refresh token for a user. Only the digest of the token is stored.
+     *
+     * @param username the username of the user.
+     * @return the opaque refresh token.
+     */
+    @Transactional
+    public String issue(String username) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(new RefreshToken(null, TokenDigest.sha256(token), username,
+                Instant.now().plusMillis(refreshExpirationTime)));
+        return token;
+    }
+
+    /**
+     * Consume a refresh token, so that it can never be used again.
+     *
+     * @param token the opaque refresh token.
+     * @return the username of the user the token was issued to.
+     * @throws InvalidRefreshTokenException if the token is unknown, already used or expired.
+     */
+    @Transactional
+    public String consume(String token) throws InvalidRefreshTokenException {
+        String tokenHash = TokenDigest.sha256(token);
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> new InvalidRefreshTokenException("Refresh token is invalid"));
+
+        // Only one concurrent caller can delete the row, so a token cannot be rotated twice
+        if (refreshTokenRepository.deleteByTokenHash(tokenHash) == 0) {
+            throw new InvalidRefreshTokenException("Refresh token has already been used");
+        }
+        if (refreshToken.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidRefreshTokenException("Refresh token has expired");
+        }
+        return refreshToken.getUsername();
+    }
+
+    /**
+     * Revoke all refresh tokens of a user.
+     *
+     * @param username the username of the user.
+     */
+    @Transactional
+    public void revokeAll(String username) {
+        refreshTokenRepository.deleteByUsername(username);
+    }
+
+    /**
+     * Periodically delete expired refresh tokens.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        refreshTokenRepository.deleteByExpiresAtBefore(Instant.now());
+    }
+}
@@ -0,0 +1,274 @@
+package gr.aueb.cf.studentapp.service;
+
+import gr.aueb.cf.studentapp.audit.AuditTrail;
+import gr.aueb.cf.studentapp.dto.StudentBulkRequest;
+import gr.aueb.cf.studentapp.dto.StudentBulkRequest.Changes;
+import gr.aueb.cf.studentapp.dto.StudentBulkRequest.Filter;
+import gr.aueb.cf.studentapp.dto.StudentBulkResult;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+import gr.aueb.cf.studentapp.model.Student;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+/**
+ * Service class for updating and deleting students in bulk.
+ * Students are processed in chunks of IDs, each in its own short transaction: the chunk is locked
+ * with one SELECT ... FOR UPDATE and changed with one UPDATE or DELETE, instead of two round trips
+ * per student. IDs are kept in sorted primitive arrays, so large requests do not box every ID.
+ * The UPDATE and DELETE run as Hibernate native mutations synchronized with {@link Student}, so Hibernate
+ * invalidates the second-level cache regions of students, by ID and by email, before the statement runs
+ * and again once the transaction completes, and a concurrent read cannot keep a stale student cached.
+ */
+@Service
+public class StudentBulkService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StudentSearchIndex searchIndex;
+    private final StudentRevisionClock revisionClock;
+    private final StudentEventBus eventBus;
+    private final AuditTrail auditTrail;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final int maxIds;
+
+    public StudentBulkService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              StudentSearchIndex searchIndex, StudentRevisionClock revisionClock, StudentEventBus eventBus,
+                              AuditTrail auditTrail, EntityManager entityManager,
+                              @Value("${students.bulk.chunk-size:1000}") int chunkSize,
+                              @Value("${students.bulk.max-ids:100000}") int maxIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.searchIndex = searchIndex;
+        this.revisionClock = revisionClock;
+        this.eventBus = eventBus;
+        this.auditTrail = auditTrail;
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Update the selected students with the given changes.
+     *
+     * @param request the selected students and the new values.
+     * @return the number of updated students and the requested IDs that were not found.
+     * @throws IllegalArgumentException if the selection or the changes are missing or invalid.
+     */
+    public StudentBulkResult updateStudents(StudentBulkRequest request) {
+        Changes changes = request.getSet();
+        if (changes == null || (changes.getFirstname() == null && changes.getLastname() == null)) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        return process(request, (ids, revision) -> {
+            mutation("UPDATE students SET firstname = COALESCE(:firstname, firstname), lastname = COALESCE(:lastname, lastname), " +
+                    "version = version + 1, revision = :revision WHERE id IN (:ids)")
+                    .setParameter("firstname", changes.getFirstname(), StandardBasicTypes.STRING)
+                    .setParameter("lastname", changes.getLastname(), StandardBasicTypes.STRING)
+                    .setParameter("revision", revision)
+                    .setParameterList("ids", LongStream.of(ids).boxed().toList())
+                    .executeUpdate();
+            reindex(ids);
+        }, ids -> auditTrail.record(AuditEntity.STUDENT, AuditAction.UPDATE, ids, changes));
+    }
+
+    /**
+     * Delete the selected students.
+     *
+     * @param request the selected students.
+     * @return the number of deleted students and the requested IDs that were not found.
+     * @throws IllegalArgumentException if the selection is missing or invalid.
+     */
+    public StudentBulkResult deleteStudents(StudentBulkRequest request) {
+        return process(request, (ids, revision) -> {
+            mutation("DELETE FROM students WHERE id IN (:ids)")
+                    .setParameterList("ids", LongStream.of(ids).boxed().toList())
+                    .executeUpdate();
+            jdbcTemplate.batchUpdate("INSERT INTO student_tombstones (student_id, revision) VALUES (?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            statement.setLong(1, ids[i]);
+                            statement.setLong(2, revision);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return ids.length;
+                        }
+                    });
+            searchIndex.remove(revision, ids);
+        }, ids -> auditTrail.record(AuditEntity.STUDENT, AuditAction.DELETE, ids, null));
+    }
+
+    /**
+     * Applies a write to every chunk of selected students, then passes the IDs of each committed chunk on.
+     */
+    private StudentBulkResult process(StudentBulkRequest request, ChunkWrite write, Consumer<long[]> committed) {
+        boolean byIds = request.getIds() != null;
+        if (byIds == (request.getFilter() != null)) {
+            throw new IllegalArgumentException("Either ids or filter must be given");
+        }
+        return byIds ? processIds(request.getIds(), write, committed) : processFilter(request.getFilter(), write, committed);
+    }
+
+    private StudentBulkResult processIds(long[] requested, ChunkWrite write, Consumer<long[]> committed) {
+        if (requested.length > maxIds) {
+            throw new IllegalArgumentException("Request has " + requested.length + " ids, the maximum is " + maxIds);
+        }
+        long[] ids = LongStream.of(requested).sorted().distinct().toArray();
+        long affected = 0;
+        LongStream.Builder notFound = LongStream.builder();
+
+        for (int from = 0; from < ids.length; from += chunkSize) {
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(from + chunkSize, ids.length));
+            long[] found = transactionTemplate.execute(status -> {
+                long[] locked = lockIds(chunk);
+                if (locked.length > 0) {
+                    long revision = revisionClock.next();
+                    write.apply(locked, revision);
+                    eventBus.publishResync(revision);
+                }
+                return locked;
+            });
+            committed.accept(found);
+            affected += found.length;
+            appendMissing(chunk, found, notFound);
+        }
+        return new StudentBulkResult(affected, notFound.build().toArray());
+    }
+
+    private StudentBulkResult processFilter(Filter filter, ChunkWrite write, Consumer<long[]> committed) {
+        List<Object> criteria = new ArrayList<>();
+        StringBuilder where = new StringBuilder();
+        if (filter.getLastname() != null) {
+            where.append(" AND lastname = ?");
+            criteria.add(filter.getLastname());
+        }
+        if (filter.getEmailDomain() != null) {
+            where.append(" AND email LIKE ?");
+            criteria.add("%@" + filter.getEmailDomain());
+        }
+        if (criteria.isEmpty()) {
+            throw new IllegalArgumentException("Filter must have at least one criterion");
+        }
+        String sql = "SELECT id FROM students WHERE id > ?" + where + " ORDER BY id LIMIT " + chunkSize + " FOR UPDATE";
+
+        // Walk the matching students in ID order, resuming after the last ID of the previous chunk
+        Object[] args = new Object[criteria.size() + 1];
+        args[0] = 0L;
+        for (int i = 0; i < criteria.size(); i++) {
+            args[i + 1] = criteria.get(i);
+        }
+        long affected = 0;
+        while (true) {
+            long[] chunk = transactionTemplate.execute(status -> {
+                long[] locked = jdbcTemplate.query(sql, StudentBulkService::readIds, args);
+                if (locked.length > 0) {
+                    long revision = revisionClock.next();
+                    write.apply(locked, revision);
+                    eventBus.publishResync(revision);
+                }
+                return locked;
+            });
+            committed.accept(chunk);
+            affected += chunk.length;
+            if (chunk.length < chunkSize) {
+                return new StudentBulkResult(affected, new long[0]);
+            }
+            args[0] = chunk[chunk.length - 1];
+        }
+    }
+
+    /**
+     * Creates a native statement changing students, which invalidates their second-level cache regions.
+     */
+    private NativeQuery<?> mutation(String sql) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        return query.addSynchronizedEntityClass(Student.class);
+    }
+
+    /**
+     * Reloads updated students, still locked by the current transaction, into the search index once it commits.
+     */
+    private void reindex(long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        List<Student> updated = jdbcTemplate.query(
+                "SELECT id, firstname, lastname, email, version, revision FROM students WHERE id IN (" + placeholders(ids.length) + ")",
+                statement -> {
+                    for (int i = 0; i < ids.length; i++) {
+                        statement.setLong(i + 1, ids[i]);
+                    }
+                },
+                (rs, rowNum) -> new Student(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getLong(5), rs.getLong(6)));
+        searchIndex.putAll(updated);
+    }
+
+    /**
+     * Locks the students of a chunk that still exist and returns their IDs in ascending order.
+     */
+    private long[] lockIds(long[] chunk) {
+        return jdbcTemplate.query(
+                "SELECT id FROM students WHERE id IN (" + placeholders(chunk.length) + ") ORDER BY id FOR UPDATE",
+                statement -> {
+                    for (int i = 0; i < chunk.length; i++) {
+                        statement.setLong(i + 1, chunk[i]);
+                    }
+                },
+                StudentBulkService::readIds);
+    }
+
+    private static long[] readIds(ResultSet rs) throws SQLException {
+        LongStream.Builder builder = LongStream.builder();
+        while (rs.next()) {
+            builder.add(rs.getLong(1));
+        }
+        return builder.build().toArray();
+    }
+
+    /**
+     * Adds the IDs of a sorted chunk that are missing from its sorted subset of found IDs.
+     */
+    private static void appendMissing(long[] chunk, long[] found, LongStream.Builder missing) {
+        int j = 0;
+        for (long id : chunk) {
+            if (j < found.length && found[j] == id) {
+                j++;
+            } else {
+                missing.add(id);
+            }
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * A write applied to the locked IDs of one chunk, stamping the revision of the chunk.
+     */
+    @FunctionalInterface
+    private interface ChunkWrite {
+        void apply(long[] ids, long revision);
+    }
+}
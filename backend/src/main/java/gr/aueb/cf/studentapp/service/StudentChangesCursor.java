@@ -0,0 +1,36 @@
+package gr.aueb.cf.studentapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor over the changes since a revision: the revision and student ID of the last change
+ * returned, plus the revision the synchronization runs up to, which is fixed by its first page.
+ */
+record StudentChangesCursor(long revision, long studentId, long upTo) {
+
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * Encode the cursor as a URL-safe token.
+     */
+    String encode() {
+        String raw = "" + revision + SEPARATOR + studentId + SEPARATOR + upTo;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor token.
+     *
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    static StudentChangesCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR));
+            return new StudentChangesCursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package gr.aueb.cf.studentapp.service;
+
+import gr.aueb.cf.studentapp.enums.StudentSort;
+import gr.aueb.cf.studentapp.model.Student;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: the sort order plus the sort key and ID of the last student of a page.
+ */
+public record StudentCursor(StudentSort sort, String lastValue, long lastId) {
+
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * Create the cursor pointing after the given student.
+     */
+    public static StudentCursor after(StudentSort sort, Student student) {
+        String lastValue = switch (sort) {
+            case ID -> "";
+            case LASTNAME -> student.getLastname();
+            case EMAIL -> student.getEmail();
+        };
+        return new StudentCursor(sort, lastValue, student.getId());
+    }
+
+    /**
+     * Encode the cursor as a URL-safe token.
+     */
+    public String encode() {
+        String raw = sort.name() + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor token and check it was issued for the requested sort order.
+     *
+     * @throws IllegalArgumentException if the token is malformed or was issued for another order.
+     */
+    public static StudentCursor decode(String token, StudentSort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            StudentSort sort = StudentSort.valueOf(raw.substring(0, first));
+            if (sort != expectedSort) {
+                throw new IllegalArgumentException("Cursor was issued for sort " + sort.name().toLowerCase());
+            }
+            return new StudentCursor(sort, raw.substring(second + 1), Long.parseLong(raw.substring(first + 1, second)));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package gr.aueb.cf.studentapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import gr.aueb.cf.studentapp.security.util.VerifiedToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process event bus pushing student changes to Server-Sent Events subscribers.
+ * <p>
+ * Changes are published after their transaction commits, serialized once, and offered to a bounded
+ * buffer per subscriber. A small pool of dispatcher threads drains the buffers, so idle connections
+ * hold no thread at all. With virtual threads enabled, each drain runs on its own virtual thread
+ * instead, so a slow client never holds up the others. When a subscriber falls so far behind that its buffer overflows, its pending
+ * events are dropped and it receives a single "resync" event instead, telling it to catch up through
+ * the delta sync endpoint. A client whose connection stops accepting data altogether is written off once
+ * a send has been blocked for the send timeout: it is dropped, and the dispatcher thread stuck on it is
+ * replaced, so stalled clients cannot freeze delivery to everyone else.
+ * <p>
+ * A subscription lasts no longer than the token it was opened with, and is closed as soon as that token
+ * is revoked, such as when the user is deleted or changed: every event and heartbeat checks the token
+ * version first, and the client has to reconnect, with its current authorities, to receive anything more.
+ */
+@Component
+public class StudentEventBus {
+
+    /**
+     * The authorities allowed to receive student events, the same ones allowed to read students.
+     */
+    public static final Set<String> STUDENT_READERS = Set.of("ROLE_USER", "ROLE_ADMIN");
+
+    private static final StudentEvent HEARTBEAT = new StudentEvent(null, 0, null, Set.of());
+    private static final StudentEvent CLOSE = new StudentEvent(null, 0, null, Set.of());
+
+    private final ObjectMapper objectMapper;
+    private final StudentRevisionClock revisionClock;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Executor dispatcher;
+    private final ThreadPoolExecutor dispatcherPool;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Counter resyncCounter;
+    private final Counter stalledCounter;
+
+    /**
+     * Constructs a StudentEventBus and registers its metrics.
+     *
+     * @param objectMapper mapper serializing the event payloads.
+     * @param revisionClock clock reporting the committed revision to new and lagging subscribers.
+     * @param tokenVersionRegistry table of current token versions, checked before sending to a subscriber.
+     * @param bufferSize the maximum number of events waiting to be sent to one subscriber.
+     * @param maxSubscribers the maximum number of concurrent subscribers.
+     * @param timeoutSeconds how long a subscription stays open before the client has to reconnect, at most until its token expires.
+     * @param sendTimeoutMillis how long a send may block before the subscriber is dropped as stalled.
+     * @param dispatcherThreads the number of threads sending events to subscribers, unless virtual threads are enabled.
+     * @param virtualThreads whether to send events on virtual threads.
+     * @param meterRegistry the registry the subscriber, resync and stall metrics are published to.
+     */
+    public StudentEventBus(ObjectMapper objectMapper, StudentRevisionClock revisionClock,
+                           TokenVersionRegistry tokenVersionRegistry,
+                           @Value("${students.events.buffer-size:256}") int bufferSize,
+                           @Value("${students.events.max-subscribers:10000}") int maxSubscribers,
+                           @Value("${students.events.timeout-seconds:1800}") long timeoutSeconds,
+                           @Value("${students.events.send-timeout-millis:5000}") long sendTimeoutMillis,
+                           @Value("${students.events.dispatcher-threads:2}") int dispatcherThreads,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                           MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.revisionClock = revisionClock;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        // Threads beyond the core size are only started when a stalled send is written off, see resizeDispatcherPool
+        this.dispatcherPool = virtualThreads ? null : new ThreadPoolExecutor(dispatcherThreads, Integer.MAX_VALUE,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DispatcherThreadFactory());
+        this.dispatcher = virtualThreads ? new VirtualThreadTaskExecutor("student-events-") : dispatcherPool;
+
+        Gauge.builder("students.events.subscribers", subscriptions, Set::size)
+                .description("Open student event subscriptions")
+                .register(meterRegistry);
+        this.resyncCounter = Counter.builder("students.events.resyncs")
+                .description("Subscribers that fell behind and were told to resynchronize")
+                .register(meterRegistry);
+        this.stalledCounter = Counter.builder("students.events.stalled")
+                .description("Subscribers dropped because a send blocked for longer than the send timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish the creation or update of a student once the current transaction commits.
+     *
+     * @param student the saved student.
+     */
+    public void publishUpsert(Student student) {
+        publish(new StudentEvent("upsert", student.getRevision(), toJson(student), STUDENT_READERS));
+    }
+
+    /**
+     * Publish the deletion of a student once the current transaction commits.
+     *
+     * @param id the ID of the deleted student.
+     * @param revision the revision of the deletion.
+     */
+    public void publishDelete(long id, long revision) {
+        publish(new StudentEvent("delete", revision, toJson(Map.of("id", id)), STUDENT_READERS));
+    }
+
+    /**
+     * Publish a change too large to push student by student, such as a bulk operation, once the
+     * current transaction commits. Subscribers catch up through the delta sync endpoint.
+     *
+     * @param revision the revision of the change.
+     */
+    public void publishResync(long revision) {
+        publish(resync(revision));
+    }
+
+    /**
+     * Open a subscription for a client with the given token and authorities, which lasts until the token
+     * expires or is revoked at the latest. The first event is "ready" with the committed revision, or
+     * "resync" if the client reconnects having missed events since its last event ID.
+     *
+     * @param token the verified token the client authenticated with.
+     * @param authorities the authorities of the subscribing user.
+     * @param lastEventId the ID of the last event the client received before reconnecting, or null.
+     * @return the emitter of the subscription, or null if the maximum number of subscribers is reached.
+     */
+    public SseEmitter subscribe(VerifiedToken token, Collection<String> authorities, Long lastEventId) {
+        if (subscriptions.size() >= maxSubscribers) {
+            return null;
+        }
+        long untilExpiry = token.getExpiresAt().toEpochMilli() - System.currentTimeMillis();
+        SseEmitter emitter = new SseEmitter(Math.max(1, Math.min(timeoutMillis, untilExpiry)));
+        Subscription subscription = new Subscription(emitter, token, Set.copyOf(authorities));
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+
+        long revision = revisionClock.committedRevision();
+        boolean missedEvents = lastEventId != null && lastEventId < revision;
+        subscription.offer(missedEvents ? resync(revision)
+                : new StudentEvent("ready", revision, toJson(Map.of("revision", revision)), STUDENT_READERS));
+        return emitter;
+    }
+
+    /**
+     * Sends a comment to idle subscribers, so proxies keep their connections open and closed connections are noticed.
+     */
+    @Scheduled(fixedDelayString = "${students.events.heartbeat-interval:30000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Subscription subscription : subscriptions) {
+            if (isRevoked(subscription, now)) {
+                close(subscription);
+            } else {
+                subscription.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    /**
+     * Drops the subscribers whose current send has been blocked for longer than the send timeout.
+     * The client is disconnected once the send returns, and the dispatcher thread it holds is replaced
+     * meanwhile, so the other subscribers keep receiving events.
+     */
+    @Scheduled(fixedDelayString = "${students.events.send-timeout-millis:5000}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isStalled(now) && subscription.stalled.compareAndSet(false, true)) {
+                subscriptions.remove(subscription);
+                stalledCounter.increment();
+                resizeDispatcherPool(1);
+            }
+        }
+    }
+
+    /**
+     * Closes every subscription and stops the dispatcher threads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        if (dispatcher instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private void publish(StudentEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(event);
+                }
+            });
+        } else {
+            dispatch(event);
+        }
+    }
+
+    private void dispatch(StudentEvent event) {
+        long now = System.currentTimeMillis();
+        for (Subscription subscription : subscriptions) {
+            if (isRevoked(subscription, now)) {
+                close(subscription);
+            } else if (!Collections.disjoint(subscription.authorities, event.audience())) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Checks if the token of a subscription expired, or was revoked since the subscription was opened.
+     */
+    private boolean isRevoked(Subscription subscription, long now) {
+        return now >= subscription.expiresAt
+                || !tokenVersionRegistry.isCurrent(subscription.username, subscription.userId, subscription.tokenVersion);
+    }
+
+    private void close(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Adds or removes a dispatcher thread, for a send written off as stalled and for its end.
+     * Virtual threads need no replacement.
+     */
+    private void resizeDispatcherPool(int delta) {
+        if (dispatcherPool == null) {
+            return;
+        }
+        synchronized (dispatcherPool) {
+            dispatcherPool.setCorePoolSize(dispatcherPool.getCorePoolSize() + delta);
+        }
+    }
+
+    private StudentEvent resync(long revision) {
+        return new StudentEvent("resync", revision, toJson(Map.of("revision", revision)), STUDENT_READERS);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * An event serialized once for all subscribers, with the authorities allowed to receive it.
+     */
+    private record StudentEvent(String type, long revision, String json, Set<String> audience) {
+    }
+
+    /**
+     * One subscriber: its emitter, the token and authorities it subscribed with and its bounded buffer
+     * of events waiting to be sent.
+     */
+    private class Subscription {
+
+        private final SseEmitter emitter;
+        private final String username;
+        private final long userId;
+        private final int tokenVersion;
+        private final long expiresAt;
+        private final Set<String> authorities;
+        private final Lock lock = new ReentrantLock();
+        private final ArrayDeque<StudentEvent> buffer = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean sending;
+        private volatile long sendStartedAt;
+        private boolean overflowed;
+        private boolean closing;
+
+        Subscription(SseEmitter emitter, VerifiedToken token, Set<String> authorities) {
+            this.emitter = emitter;
+            this.username = token.getSubject();
+            this.userId = token.getUserId();
+            this.tokenVersion = token.getTokenVersion();
+            this.expiresAt = token.getExpiresAt().toEpochMilli();
+            this.authorities = authorities;
+        }
+
+        boolean isStalled(long now) {
+            return sending && now - sendStartedAt > sendTimeoutNanos;
+        }
+
+        /**
+         * Ends the subscription once the send in progress, if any, returns. Pending events are discarded.
+         */
+        void close() {
+            lock.lock();
+            try {
+                closing = true;
+                buffer.clear();
+                overflowed = false;
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+        void offer(StudentEvent event) {
+            if (stalled.get()) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (closing) {
+                    return;
+                } else if (event == HEARTBEAT) {
+                    if (!buffer.isEmpty() || overflowed) {
+                        return; // Not idle
+                    }
+                } else if (overflowed) {
+                    return; // A resync is pending, which covers this event too
+                } else if (buffer.size() >= bufferSize) {
+                    buffer.clear();
+                    overflowed = true;
+                    resyncCounter.increment();
+                    return;
+                }
+                buffer.add(event);
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false); // Shutting down
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                StudentEvent event;
+                while (!stalled.get() && (event = next()) != null) {
+                    if (event == CLOSE) {
+                        emitter.complete();
+                        return;
+                    }
+                    if (event == HEARTBEAT) {
+                        send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        send(SseEmitter.event()
+                                .name(event.type())
+                                .id(String.valueOf(event.revision()))
+                                .data(event.json(), MediaType.APPLICATION_JSON));
+                    }
+                }
+                if (stalled.get()) {
+                    // Written off while a send was blocked: disconnect the client, which resyncs when it reconnects
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, or the emitter already completed
+                subscriptions.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                if (stalled.get() && released.compareAndSet(false, true)) {
+                    resizeDispatcherPool(-1);
+                }
+                scheduled.set(false);
+            }
+            // Events offered after the last poll but before the flag was cleared
+            lock.lock();
+            try {
+                if (buffer.isEmpty() && !overflowed && !closing) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartedAt = System.nanoTime();
+            sending = true;
+            try {
+                emitter.send(event);
+            } finally {
+                sending = false;
+            }
+        }
+
+        private StudentEvent next() {
+            lock.lock();
+            try {
+                if (closing) {
+                    return CLOSE;
+                }
+                if (overflowed) {
+                    overflowed = false;
+                    return resync(revisionClock.committedRevision());
+                }
+                return buffer.poll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Names the dispatcher threads so they are easy to tell apart in thread dumps.
+     */
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "student-events-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
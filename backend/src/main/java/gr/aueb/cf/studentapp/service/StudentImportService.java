@@ -0,0 +1,291 @@
+package gr.aueb.cf.studentapp.service;
+
+import gr.aueb.cf.studentapp.audit.AuditTrail;
+import gr.aueb.cf.studentapp.dto.StudentImportResult;
+import gr.aueb.cf.studentapp.dto.StudentImportResult.RowError;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.repository.StudentRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Service class for importing students in bulk.
+ * Rows are validated in parallel, checked for existing emails with set-based queries,
+ * and inserted with JDBC batches (one transaction per batch) instead of one entity save per row.
+ */
+@Service
+public class StudentImportService {
+
+    private static final String INSERT_SQL = "INSERT INTO students (firstname, lastname, email, version, revision) VALUES (?, ?, ?, 0, ?)";
+    private static final int EMAIL_QUERY_CHUNK = 1000;
+    private static final int MAX_CONFLICT_RETRIES = 3;
+    private static final String CSV_HEADER = "firstname,lastname,email";
+
+    private final StudentRepository studentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final StudentSearchIndex searchIndex;
+    private final StudentRevisionClock revisionClock;
+    private final StudentEventBus eventBus;
+    private final AuditTrail auditTrail;
+    private final int batchSize;
+    private final int maxRows;
+
+    public StudentImportService(StudentRepository studentRepository, JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate, Validator validator,
+                                StudentSearchIndex searchIndex, StudentRevisionClock revisionClock,
+                                StudentEventBus eventBus, AuditTrail auditTrail,
+                                @Value("${students.import.batch-size:1000}") int batchSize,
+                                @Value("${students.import.max-rows:100000}") int maxRows) {
+        this.studentRepository = studentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.searchIndex = searchIndex;
+        this.revisionClock = revisionClock;
+        this.eventBus = eventBus;
+        this.auditTrail = auditTrail;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Import students from CSV with the columns firstname, lastname and email.
+     * A header line with those column names is optional; values may be enclosed in double quotes.
+     *
+     * @param csv the CSV content.
+     * @return the number of imported students and the errors of the rejected rows.
+     * @throws IllegalArgumentException if the import has more rows than allowed.
+     */
+    public StudentImportResult importCsv(String csv) {
+        List<String> lines = csv.lines().filter(line -> !line.isBlank()).toList();
+        if (!lines.isEmpty() && lines.get(0).replace(" ", "").replace("\"", "").equalsIgnoreCase(CSV_HEADER)) {
+            lines = lines.subList(1, lines.size());
+        }
+        checkSize(lines.size());
+
+        List<Student> students = new ArrayList<>(lines.size());
+        RowError[] errors = new RowError[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            List<String> values = splitCsvLine(lines.get(i));
+            if (values.size() == 3) {
+                students.add(new Student(null, values.get(0), values.get(1), values.get(2)));
+            } else {
+                students.add(new Student());
+                errors[i] = new RowError(i + 1, null, "Expected 3 columns but found " + values.size());
+            }
+        }
+        return importRows(students, errors);
+    }
+
+    /**
+     * Import the given students, skipping invalid rows and rows whose email is already in use.
+     *
+     * @param students the students to import, in row order.
+     * @return the number of imported students and the errors of the rejected rows.
+     * @throws IllegalArgumentException if the import has more rows than allowed.
+     */
+    public StudentImportResult importStudents(List<Student> students) {
+        checkSize(students.size());
+        List<Student> rows = new ArrayList<>(students);
+        RowError[] errors = new RowError[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) == null) {
+                rows.set(i, new Student());
+                errors[i] = new RowError(i + 1, null, "Row is empty");
+            }
+        }
+        return importRows(rows, errors);
+    }
+
+    private void checkSize(int rows) {
+        if (rows > maxRows) {
+            throw new IllegalArgumentException("Import has " + rows + " rows, the maximum is " + maxRows);
+        }
+    }
+
+    /**
+     * Validates, checks and inserts the rows that do not already have an error.
+     */
+    private StudentImportResult importRows(List<Student> students, RowError[] errors) {
+        // Validate every row in parallel
+        IntStream.range(0, students.size()).parallel().filter(i -> errors[i] == null).forEach(i -> {
+            Set<ConstraintViolation<Student>> violations = validator.validate(students.get(i));
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                errors[i] = new RowError(i + 1, students.get(i).getEmail(), message);
+            }
+        });
+
+        // Reject emails repeated within the import, keeping the first occurrence
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < students.size(); i++) {
+            if (errors[i] == null && !seen.add(students.get(i).getEmail().toLowerCase(Locale.ROOT))) {
+                errors[i] = new RowError(i + 1, students.get(i).getEmail(), "Duplicate email in import");
+            }
+        }
+
+        // Reject emails already in use, with one query per chunk of emails
+        Set<String> existing = findExistingEmails(seen);
+        for (int i = 0; i < students.size(); i++) {
+            if (errors[i] == null && existing.contains(students.get(i).getEmail().toLowerCase(Locale.ROOT))) {
+                errors[i] = new RowError(i + 1, students.get(i).getEmail(),
+                        "Email " + students.get(i).getEmail() + " is already in use");
+            }
+        }
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < students.size(); i++) {
+            if (errors[i] == null) {
+                accepted.add(i);
+            }
+        }
+
+        int imported = 0;
+        for (int from = 0; from < accepted.size(); from += batchSize) {
+            List<Integer> batch = accepted.subList(from, Math.min(from + batchSize, accepted.size()));
+            imported += insertBatch(students, batch, errors);
+        }
+
+        List<RowError> rowErrors = Arrays.stream(errors).filter(Objects::nonNull).toList();
+        return new StudentImportResult(students.size(), imported, rowErrors);
+    }
+
+    /**
+     * Splits a CSV line into trimmed values, honouring double-quoted values and escaped ("") quotes.
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    /**
+     * Finds which of the given (lower-cased) emails are already in use.
+     */
+    private Set<String> findExistingEmails(Set<String> emails) {
+        Set<String> existing = new HashSet<>();
+        List<String> all = new ArrayList<>(emails);
+        for (int from = 0; from < all.size(); from += EMAIL_QUERY_CHUNK) {
+            studentRepository.findExistingEmails(all.subList(from, Math.min(from + EMAIL_QUERY_CHUNK, all.size())))
+                    .forEach(email -> existing.add(email.toLowerCase(Locale.ROOT)));
+        }
+        return existing;
+    }
+
+    /**
+     * Inserts one batch of rows in a single transaction, and indexes and audits them once it commits.
+     * If another request inserted one of the emails in the meantime, the emails now in use are looked
+     * up again, their rows rejected, and the rest of the batch is retried as one batch. When none is in
+     * use yet, the conflicting insert has not committed, and the batch is retried as it is a few times.
+     *
+     * @return the number of inserted rows
+     * @throws DataIntegrityViolationException if the batch keeps failing although none of its emails is in use.
+     */
+    private int insertBatch(List<Student> students, List<Integer> rows, RowError[] errors) {
+        List<Integer> remaining = rows;
+        int retries = 0;
+        while (!remaining.isEmpty()) {
+            List<Integer> attempt = remaining;
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(students, attempt));
+                return attempt.size();
+            } catch (DataIntegrityViolationException e) {
+                Set<String> emails = new HashSet<>();
+                attempt.forEach(row -> emails.add(students.get(row).getEmail().toLowerCase(Locale.ROOT)));
+                // Read within a read-write transaction, so from the primary rather than a lagging replica
+                Set<String> existing = transactionTemplate.execute(status -> findExistingEmails(emails));
+                if (existing.isEmpty()) {
+                    if (++retries > MAX_CONFLICT_RETRIES) {
+                        throw e;
+                    }
+                    continue;
+                }
+                remaining = new ArrayList<>();
+                for (int row : attempt) {
+                    String email = students.get(row).getEmail();
+                    if (existing.contains(email.toLowerCase(Locale.ROOT))) {
+                        errors[row] = new RowError(row + 1, email, "Email " + email + " is already in use");
+                    } else {
+                        remaining.add(row);
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Inserts the rows with one JDBC batch under one revision, reading their IDs from the generated keys.
+     */
+    private void insert(List<Student> students, List<Integer> rows) {
+        long revision = revisionClock.next();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Student student = students.get(rows.get(i));
+                        statement.setString(1, student.getFirstname());
+                        statement.setString(2, student.getLastname());
+                        statement.setString(3, student.getEmail());
+                        statement.setLong(4, revision);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        List<Student> inserted = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Student student = students.get(rows.get(i));
+            long id = ((Number) generated.get(i).values().iterator().next()).longValue();
+            inserted.add(new Student(id, student.getFirstname(), student.getLastname(), student.getEmail(), 0, revision));
+        }
+        searchIndex.putAll(inserted);
+        inserted.forEach(student -> auditTrail.record(AuditEntity.STUDENT, AuditAction.CREATE, student.getId(), student));
+        eventBus.publishResync(revision);
+    }
+}
@@ -0,0 +1,99 @@
+package gr.aueb.cf.studentapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Source of the monotonically increasing revisions stamped on student changes.
+ * <p>
+ * Revisions are handed out before the changing transaction commits, so transactions may commit
+ * out of revision order. The clock therefore tracks the revisions still in flight and only reports
+ * a revision as committed once every lower revision has completed. A client that synchronized up to
+ * the committed revision can never miss a change that commits later with a lower revision.
+ */
+@Component
+public class StudentRevisionClock {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Lock lock = new ReentrantLock();
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+    private long current;
+
+    /**
+     * Constructs a StudentRevisionClock.
+     *
+     * @param jdbcTemplate template for reading the highest revision in use at startup.
+     */
+    public StudentRevisionClock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Continues from the highest revision in use. Students that predate revisions get revision 1,
+     * so that a synchronization since revision 0 returns every student.
+     */
+    @PostConstruct
+    public void load() {
+        jdbcTemplate.update("UPDATE students SET revision = 1 WHERE revision = 0");
+        Long students = jdbcTemplate.queryForObject("SELECT MAX(revision) FROM students", Long.class);
+        Long tombstones = jdbcTemplate.queryForObject("SELECT MAX(revision) FROM student_tombstones", Long.class);
+        current = Math.max(1, Math.max(students == null ? 0 : students, tombstones == null ? 0 : tombstones));
+    }
+
+    /**
+     * Assign the next revision to the changes of the current transaction.
+     * The revision counts as in flight until the transaction completes.
+     *
+     * @return the revision to stamp on the changes.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    public long next() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Student revisions must be assigned inside a transaction");
+        }
+        long revision;
+        lock.lock();
+        try {
+            revision = ++current;
+            inFlight.add(revision);
+        } finally {
+            lock.unlock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(revision);
+            }
+        });
+        return revision;
+    }
+
+    /**
+     * @return the highest revision at or below which every change has committed (or rolled back).
+     */
+    public long committedRevision() {
+        lock.lock();
+        try {
+            return inFlight.isEmpty() ? current : inFlight.first() - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(long revision) {
+        lock.lock();
+        try {
+            inFlight.remove(revision);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
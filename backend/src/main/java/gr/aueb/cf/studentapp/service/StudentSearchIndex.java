@@ -0,0 +1,640 @@
+package gr.aueb.cf.studentapp.service;
+
+import gr.aueb.cf.studentapp.model.Student;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search index over the first name, last name and email of every student.
+ * <p>
+ * Each student occupies a slot; postings map every trigram of the lower-cased fields, and the
+ * first two characters of every word, to a sorted int array of slots. A query intersects the
+ * postings of its terms, starting with the shortest, and verifies and ranks only the surviving
+ * candidates, so its cost depends on how selective the query is rather than on the number of students.
+ * <p>
+ * The index is loaded at startup and kept in sync by the services that write students. Changes made
+ * within a transaction are applied once it commits, so searches never return rolled back students.
+ * Transactions may apply their changes in another order than they committed in, so every slot keeps the
+ * revision of its last change and older changes are ignored. A removed student leaves a hole with the
+ * revision of the removal, which compaction drops only once no older change can still be applied.
+ * Readers run in parallel; writers are serialized.
+ */
+@Component
+public class StudentSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StudentSearchIndex.class);
+    private static final int EDGE_KEY = 1 << 30;
+    private static final int LASTNAME_WEIGHT = 3;
+    private static final int FIRSTNAME_WEIGHT = 2;
+    private static final int EMAIL_WEIGHT = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StudentRevisionClock revisionClock;
+    private final int minQueryLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Slot arrays; a removed student leaves a hole with null fields until the next compaction
+    private long[] ids = new long[1024];
+    private long[] revisions = new long[1024];
+    private String[] firstnames = new String[1024];
+    private String[] lastnames = new String[1024];
+    private String[] emails = new String[1024];
+    private int slotCount;
+    private int liveCount;
+
+    private final LongIntMap slotsById = new LongIntMap();
+    private final PostingsMap postings = new PostingsMap();
+
+    /**
+     * Constructs a StudentSearchIndex and registers its size as a metric.
+     *
+     * @param jdbcTemplate template for loading the students at startup.
+     * @param revisionClock the clock telling which revisions may still be applied.
+     * @param minQueryLength the minimum length of a query term.
+     * @param meterRegistry the registry the index size is published to.
+     */
+    public StudentSearchIndex(JdbcTemplate jdbcTemplate, StudentRevisionClock revisionClock,
+                              @Value("${students.search.min-length:2}") int minQueryLength,
+                              MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.revisionClock = revisionClock;
+        this.minQueryLength = Math.max(2, minQueryLength);
+        Gauge.builder("students.search.index.size", this, StudentSearchIndex::size)
+                .description("Students in the search index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads every student before the application starts serving requests.
+     * Rows are streamed in ID order, so each student is appended to the end of its postings.
+     */
+    @PostConstruct
+    public void load() {
+        JdbcTemplate streaming = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        streaming.setFetchSize(1000);
+        lock.writeLock().lock();
+        try {
+            streaming.query("SELECT id, firstname, lastname, email, revision FROM students ORDER BY id", rs -> {
+                put(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Student search index loaded: {} students", liveCount);
+    }
+
+    /**
+     * Add a student to the index, or replace the indexed fields of a student already in it,
+     * once the current transaction commits. Ignored if the index already has a later revision of the student.
+     *
+     * @param student the saved student, with the revision of the change.
+     */
+    public void put(Student student) {
+        // Read now, so later changes to the entity do not leak into the index
+        long id = student.getId();
+        String firstname = student.getFirstname();
+        String lastname = student.getLastname();
+        String email = student.getEmail();
+        long revision = student.getRevision();
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                put(id, firstname, lastname, email, revision);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Add or replace many students at once, once the current transaction commits.
+     * Students of which the index already has a later revision are skipped.
+     *
+     * @param students the saved students, with the revision of the change.
+     */
+    public void putAll(Collection<Student> students) {
+        // Read now, like put, so later changes to the entities do not leak into the index
+        int count = students.size();
+        long[] savedIds = new long[count];
+        String[] savedFirstnames = new String[count];
+        String[] savedLastnames = new String[count];
+        String[] savedEmails = new String[count];
+        long[] savedRevisions = new long[count];
+        int i = 0;
+        for (Student student : students) {
+            savedIds[i] = student.getId();
+            savedFirstnames[i] = student.getFirstname();
+            savedLastnames[i] = student.getLastname();
+            savedEmails[i] = student.getEmail();
+            savedRevisions[i] = student.getRevision();
+            i++;
+        }
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int j = 0; j < count; j++) {
+                    put(savedIds[j], savedFirstnames[j], savedLastnames[j], savedEmails[j], savedRevisions[j]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Remove students from the index once the current transaction commits.
+     * A later put of an earlier revision of the students is ignored.
+     *
+     * @param revision the revision of the deletion.
+     * @param studentIds the IDs of the deleted students.
+     */
+    public void remove(long revision, long... studentIds) {
+        long[] ids = studentIds.clone();
+        afterCommit(() -> removeNow(revision, ids));
+    }
+
+    private void removeNow(long revision, long[] studentIds) {
+        lock.writeLock().lock();
+        try {
+            for (long id : studentIds) {
+                int slot = slotsById.get(id);
+                if (slot < 0) {
+                    // Removed before its creation was applied: leave a hole for the creation to find
+                    hole(id, revision);
+                } else if (revision >= revisions[slot]) {
+                    if (emails[slot] != null) {
+                        unlink(slot);
+                        firstnames[slot] = lastnames[slot] = emails[slot] = null;
+                        liveCount--;
+                    }
+                    revisions[slot] = revision;
+                }
+            }
+            if (slotCount > 1024 && liveCount < slotCount / 2) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the students matching every term of a query, best matches first.
+     * Terms of three or more characters match anywhere in a field; shorter terms match the start of a word.
+     * A whole-word match ranks above a word-prefix match, which ranks above any other match,
+     * and matches in the last name rank above matches in the first name, which rank above matches in the email.
+     *
+     * @param query the search terms, separated by whitespace.
+     * @param limit the maximum number of students to return.
+     * @return the matching students, best matches first.
+     * @throws IllegalArgumentException if a term is shorter than the minimum query length.
+     */
+    public List<Student> search(String query, int limit) {
+        String[] terms = query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        for (String term : terms) {
+            if (term.length() < minQueryLength) {
+                throw new IllegalArgumentException("Search terms must have at least " + minQueryLength + " characters");
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(terms);
+            // Min-heap of the best (score, slot) pairs found so far, packed so that a greater value ranks higher
+            PriorityQueue<Long> best = new PriorityQueue<>(limit + 1);
+            for (int slot : candidates) {
+                long score = score(slot, terms);
+                if (score == 0) {
+                    continue; // Trigram false positive
+                }
+                long ranked = (score << 32) | (Integer.MAX_VALUE - slot);
+                if (best.size() < limit) {
+                    best.add(ranked);
+                } else if (ranked > best.peek()) {
+                    best.poll();
+                    best.add(ranked);
+                }
+            }
+
+            Student[] results = new Student[best.size()];
+            for (int i = results.length - 1; i >= 0; i--) {
+                int slot = Integer.MAX_VALUE - (int) (best.poll() & 0xFFFFFFFFL);
+                results[i] = new Student(ids[slot], firstnames[slot], lastnames[slot], emails[slot]);
+            }
+            return Arrays.asList(results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of students in the index.
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    private void put(long id, String firstname, String lastname, String email, long revision) {
+        int slot = slotsById.get(id);
+        if (slot < 0) {
+            slot = hole(id, revision);
+        } else if (revision < revisions[slot]) {
+            return; // Applied after a later change, or after the removal of the student
+        } else if (emails[slot] != null) {
+            unlink(slot);
+            liveCount--;
+        }
+        revisions[slot] = revision;
+        liveCount++;
+        firstnames[slot] = firstname;
+        lastnames[slot] = lastname;
+        emails[slot] = email;
+        for (int key : keys(firstname, lastname, email)) {
+            postings.getOrCreate(key).add(slot);
+        }
+    }
+
+    /**
+     * Appends an empty slot for a student.
+     */
+    private int hole(long id, long revision) {
+        int slot = slotCount++;
+        ensureCapacity(slotCount);
+        ids[slot] = id;
+        revisions[slot] = revision;
+        slotsById.put(id, slot);
+        return slot;
+    }
+
+    private void unlink(int slot) {
+        for (int key : keys(firstnames[slot], lastnames[slot], emails[slot])) {
+            Postings list = postings.get(key);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the slots and postings without the holes left by removed students, except for the
+     * holes of removals that a put of an earlier, still uncommitted revision may yet be applied after.
+     */
+    private void compact() {
+        long committed = revisionClock.committedRevision();
+        long[] oldIds = ids;
+        long[] oldRevisions = revisions;
+        String[] oldFirstnames = firstnames;
+        String[] oldLastnames = lastnames;
+        String[] oldEmails = emails;
+        int oldSlotCount = slotCount;
+
+        int capacity = Math.max(1024, liveCount * 2);
+        ids = new long[capacity];
+        revisions = new long[capacity];
+        firstnames = new String[capacity];
+        lastnames = new String[capacity];
+        emails = new String[capacity];
+        slotCount = 0;
+        liveCount = 0;
+        slotsById.clear();
+        postings.clear();
+        for (int slot = 0; slot < oldSlotCount; slot++) {
+            if (oldEmails[slot] != null) {
+                put(oldIds[slot], oldFirstnames[slot], oldLastnames[slot], oldEmails[slot], oldRevisions[slot]);
+            } else if (oldRevisions[slot] > committed) {
+                hole(oldIds[slot], oldRevisions[slot]);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, grown);
+            revisions = Arrays.copyOf(revisions, grown);
+            firstnames = Arrays.copyOf(firstnames, grown);
+            lastnames = Arrays.copyOf(lastnames, grown);
+            emails = Arrays.copyOf(emails, grown);
+        }
+    }
+
+    /**
+     * Intersects the postings of every key of every term, shortest first.
+     */
+    private int[] candidates(String[] terms) {
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            for (int key : term.length() < 3 ? new int[]{edgeKey(term)} : trigramKeys(term)) {
+                Postings list = postings.get(key);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings first = lists.get(0);
+        int[] result = Arrays.copyOf(first.slots, first.size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            Postings other = lists.get(i);
+            int kept = 0;
+            int from = 0;
+            for (int j = 0; j < size; j++) {
+                int found = Arrays.binarySearch(other.slots, from, other.size, result[j]);
+                if (found >= 0) {
+                    result[kept++] = result[j];
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Scores a candidate against every term; a term that does not match makes the whole score 0.
+     */
+    private long score(int slot, String[] terms) {
+        String firstname = firstnames[slot].toLowerCase(Locale.ROOT);
+        String lastname = lastnames[slot].toLowerCase(Locale.ROOT);
+        String email = emails[slot].toLowerCase(Locale.ROOT);
+        long total = 0;
+        for (String term : terms) {
+            int best = Math.max(LASTNAME_WEIGHT * match(lastname, term),
+                    Math.max(FIRSTNAME_WEIGHT * match(firstname, term), EMAIL_WEIGHT * match(email, term)));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Returns 3 for a whole-word match, 2 for a word-prefix match, 1 for any other substring match
+     * (only for terms of three or more characters) and 0 if the term does not occur.
+     */
+    private static int match(String field, String term) {
+        int best = 0;
+        for (int at = field.indexOf(term); at >= 0 && best < 3; at = field.indexOf(term, at + 1)) {
+            boolean startsWord = at == 0 || !Character.isLetterOrDigit(field.charAt(at - 1));
+            int end = at + term.length();
+            boolean endsWord = end == field.length() || !Character.isLetterOrDigit(field.charAt(end));
+            best = Math.max(best, startsWord ? (endsWord ? 3 : 2) : 1);
+        }
+        return term.length() < 3 && best < 2 ? 0 : best;
+    }
+
+    /**
+     * Returns the distinct keys of a student: the trigrams of each field and the first two characters of each word.
+     */
+    private static int[] keys(String... fields) {
+        int[] keys = new int[0];
+        int size = 0;
+        for (String value : fields) {
+            String field = value.toLowerCase(Locale.ROOT);
+            int[] trigrams = trigramKeys(field);
+            keys = Arrays.copyOf(keys, size + trigrams.length + field.length());
+            System.arraycopy(trigrams, 0, keys, size, trigrams.length);
+            size += trigrams.length;
+            for (int i = 0; i + 1 < field.length(); i++) {
+                boolean startsWord = i == 0 || !Character.isLetterOrDigit(field.charAt(i - 1));
+                if (startsWord && Character.isLetterOrDigit(field.charAt(i))) {
+                    keys[size++] = edgeKey(field.substring(i, i + 2));
+                }
+            }
+        }
+        return Arrays.stream(keys, 0, size).sorted().distinct().toArray();
+    }
+
+    /**
+     * Packs every trigram of a string into an int, 10 bits per character. Characters outside the
+     * first 1024 code points share keys with others, which only adds candidates that fail verification.
+     */
+    private static int[] trigramKeys(String value) {
+        int count = Math.max(0, value.length() - 2);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (value.charAt(i) & 0x3FF) << 20 | (value.charAt(i + 1) & 0x3FF) << 10 | (value.charAt(i + 2) & 0x3FF);
+        }
+        return keys;
+    }
+
+    private static int edgeKey(String prefix) {
+        return EDGE_KEY | (prefix.charAt(0) & 0x3FF) << 10 | (prefix.charAt(1) & 0x3FF);
+    }
+
+    /**
+     * A sorted, growable array of slots.
+     */
+    private static class Postings {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            // Slots are mostly appended in ascending order, so check the end first
+            int at = size == 0 || slots[size - 1] < slot ? size : Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0 && at < size) {
+                return; // Already present
+            }
+            at = at < 0 ? -at - 1 : at;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size + (size >> 1) + 1);
+            }
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Open-addressing hash map from int keys to their postings, without boxing the keys.
+     * Any int is a valid key, so a slot is free when it holds no postings.
+     */
+    private static class PostingsMap {
+
+        private int[] keys = new int[4096];
+        private Postings[] values = new Postings[4096];
+        private int size;
+
+        Postings get(int key) {
+            int mask = keys.length - 1;
+            for (int i = index(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        Postings getOrCreate(int key) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = new Postings();
+            size++;
+            return values[i];
+        }
+
+        void remove(int key) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (values[i] == null || keys[i] != key) {
+                if (values[i] == null) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Shift back the following entries of the probe sequence so lookups never stop at the gap
+            int gap = i;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = index(keys[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = null;
+            size--;
+        }
+
+        void clear() {
+            keys = new int[4096];
+            values = new Postings[4096];
+            size = 0;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new int[capacity];
+            values = new Postings[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = index(oldKeys[i], mask);
+                    while (values[j] != null) {
+                        j = (j + 1) & mask;
+                    }
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        private static int index(int key, int mask) {
+            int hash = key * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    /**
+     * Open-addressing hash map from positive long keys to non-negative int values, without boxing.
+     */
+    private static class LongIntMap {
+
+        private long[] keys = new long[2048];
+        private int[] values = new int[2048];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = index(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void clear() {
+            keys = new long[2048];
+            values = new int[2048];
+            size = 0;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
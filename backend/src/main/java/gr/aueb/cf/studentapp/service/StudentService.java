@@ -1,12 +1,35 @@
 package gr.aueb.cf.studentapp.service;
 
+import gr.aueb.cf.studentapp.audit.AuditTrail;
+import gr.aueb.cf.studentapp.dto.StudentChanges;
+import gr.aueb.cf.studentapp.dto.StudentPage;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
+import gr.aueb.cf.studentapp.enums.StudentSort;
 import gr.aueb.cf.studentapp.exceptions.EmailAlreadyExistsException;
 import gr.aueb.cf.studentapp.exceptions.StudentNotFoundException;
+import gr.aueb.cf.studentapp.exceptions.StudentVersionMismatchException;
 import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.model.StudentTombstone;
 import gr.aueb.cf.studentapp.repository.StudentRepository;
+import gr.aueb.cf.studentapp.repository.StudentTombstoneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * Service class that provides business logic for managing student data.
@@ -16,10 +39,40 @@ import java.util.Optional;
 public class StudentService {
 
     private final StudentRepository studentRepository;
+    private final EntityManager entityManager;
+    private final StudentSearchIndex searchIndex;
+    private final StudentRevisionClock revisionClock;
+    private final StudentTombstoneRepository tombstoneRepository;
+    private final StudentEventBus eventBus;
+    private final AuditTrail auditTrail;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultSearchLimit;
+    private final int maxSearchLimit;
+    private final boolean replicasEnabled;
 
     // Constructor-based Dependency Injection (προτιμάται για ασφάλεια και testability)
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository, EntityManager entityManager,
+                          StudentSearchIndex searchIndex, StudentRevisionClock revisionClock,
+                          StudentTombstoneRepository tombstoneRepository, StudentEventBus eventBus,
+                          AuditTrail auditTrail,
+                          @Value("${students.page.default-limit:50}") int defaultPageSize,
+                          @Value("${students.page.max-limit:500}") int maxPageSize,
+                          @Value("${students.search.default-limit:20}") int defaultSearchLimit,
+                          @Value("${students.search.max-limit:100}") int maxSearchLimit,
+                          @Value("${datasource.replicas.enabled:false}") boolean replicasEnabled) {
         this.studentRepository = studentRepository;
+        this.entityManager = entityManager;
+        this.searchIndex = searchIndex;
+        this.revisionClock = revisionClock;
+        this.tombstoneRepository = tombstoneRepository;
+        this.eventBus = eventBus;
+        this.auditTrail = auditTrail;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultSearchLimit = defaultSearchLimit;
+        this.maxSearchLimit = maxSearchLimit;
+        this.replicasEnabled = replicasEnabled;
     }
 
     /**
@@ -29,20 +82,25 @@ public class StudentService {
      * @return the student if found
      * @throws StudentNotFoundException if the student is not found
      */
+    @Transactional(readOnly = true)
     public Student getStudentById(Long id) throws StudentNotFoundException {
+        bypassCacheStoreOnReplicas();
         return studentRepository.findById(id)
                 .orElseThrow(() -> new StudentNotFoundException("Student with ID " + id + " not found"));
     }
 
     /**
      * Finds a student by their email address.
+     * The email is the natural ID of the student, so repeated lookups are served from the second-level cache.
      *
      * @param email the email address of the student
      * @return the student object if found
      * @throws StudentNotFoundException if no student with the given email is found
      */
+    @Transactional(readOnly = true)
     public Student findStudentByEmail(String email) throws StudentNotFoundException {
-        return studentRepository.findByEmail(email)
+        bypassCacheStoreOnReplicas();
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Student.class).loadOptional(email)
                 .orElseThrow(() -> new StudentNotFoundException("Student with email " + email + " not found"));
     }
 
@@ -53,11 +111,17 @@ public class StudentService {
      * @return the saved student object
      * @throws EmailAlreadyExistsException if the email is already taken
      */
+    @Transactional(rollbackFor = Exception.class)
     public Student createStudent(Student student) throws EmailAlreadyExistsException {
         if (studentRepository.findByEmail(student.getEmail()).isPresent()) {
             throw new EmailAlreadyExistsException("Email " + student.getEmail() + " is already in use");
         }
-        return studentRepository.save(student);
+        student.setRevision(revisionClock.next());
+        Student savedStudent = studentRepository.save(student);
+        searchIndex.put(savedStudent);
+        eventBus.publishUpsert(savedStudent);
+        auditTrail.record(AuditEntity.STUDENT, AuditAction.CREATE, savedStudent.getId(), savedStudent);
+        return savedStudent;
     }
 
     /**
@@ -67,10 +131,34 @@ public class StudentService {
      * @return the updated student object
      * @throws StudentNotFoundException if the student with the given ID does not exist
      * @throws EmailAlreadyExistsException if the email is already taken by another student
+     * @throws StudentVersionMismatchException if the student was changed concurrently
      */
-    public Student updateStudent(Long id, Student student) throws StudentNotFoundException, EmailAlreadyExistsException {
+    @Transactional(rollbackFor = Exception.class)
+    public Student updateStudent(Long id, Student student)
+            throws StudentNotFoundException, EmailAlreadyExistsException, StudentVersionMismatchException {
+        return updateStudent(id, student, null);
+    }
+
+    /**
+     * Updates an existing student in the database, provided it is still at one of the expected versions.
+     * The version is checked again by the UPDATE statement itself, so a concurrent update is never overwritten.
+     *
+     * @param student the student object to be updated
+     * @param expectedVersions the versions the update was based on, or null to accept any version
+     * @return the updated student object
+     * @throws StudentNotFoundException if the student with the given ID does not exist
+     * @throws EmailAlreadyExistsException if the email is already taken by another student
+     * @throws StudentVersionMismatchException if the student is not at an expected version, or was changed concurrently
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Student updateStudent(Long id, Student student, Collection<Long> expectedVersions)
+            throws StudentNotFoundException, EmailAlreadyExistsException, StudentVersionMismatchException {
         Student existingStudent = getStudentById(id);
 
+        if (expectedVersions != null && !expectedVersions.contains(existingStudent.getVersion())) {
+            throw new StudentVersionMismatchException("Student with ID " + id + " has been modified");
+        }
+
         if (!existingStudent.getEmail().equals(student.getEmail())) {
             if (studentRepository.findByEmail(student.getEmail()).isPresent()) {
                 throw new EmailAlreadyExistsException("Email " + student.getEmail() + " is already in use");
@@ -80,8 +168,18 @@ public class StudentService {
         existingStudent.setFirstname(student.getFirstname());
         existingStudent.setLastname(student.getLastname());
         existingStudent.setEmail(student.getEmail());
+        existingStudent.setRevision(revisionClock.next());
 
-        return studentRepository.save(existingStudent);
+        try {
+            // Flush here, so a concurrent update is detected by the version check of this UPDATE
+            Student savedStudent = studentRepository.saveAndFlush(existingStudent);
+            searchIndex.put(savedStudent);
+            eventBus.publishUpsert(savedStudent);
+            auditTrail.record(AuditEntity.STUDENT, AuditAction.UPDATE, savedStudent.getId(), savedStudent);
+            return savedStudent;
+        } catch (OptimisticLockingFailureException e) {
+            throw new StudentVersionMismatchException("Student with ID " + id + " has been modified");
+        }
     }
 
     /**
@@ -90,11 +188,30 @@ public class StudentService {
      * @param id the unique identifier of the student
      * @throws StudentNotFoundException if no student with the given ID is found
      */
+    @Transactional(rollbackFor = Exception.class)
     public void deleteStudent(Long id) throws StudentNotFoundException {
         if (!studentRepository.existsById(id)) {
             throw new StudentNotFoundException("Student with ID " + id + " not found");
         }
         studentRepository.deleteById(id);
+        long revision = revisionClock.next();
+        entityManager.persist(new StudentTombstone(id, revision));
+        searchIndex.remove(revision, id);
+        eventBus.publishDelete(id, revision);
+        auditTrail.record(AuditEntity.STUDENT, AuditAction.DELETE, id, null);
+    }
+
+    /**
+     * Searches students by partial first name, last name or email, using the in-memory search index.
+     *
+     * @param query the search terms, separated by whitespace
+     * @param limit the maximum number of results, or null for the default; capped at the configured maximum
+     * @return the matching students, best matches first
+     * @throws IllegalArgumentException if a search term is too short
+     */
+    public List<Student> searchStudents(String query, Integer limit) {
+        int resultSize = limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxSearchLimit));
+        return searchIndex.search(query, resultSize);
     }
 
     /**
@@ -102,7 +219,131 @@ public class StudentService {
      *
      * @return a list of all students
      */
+    @Transactional(readOnly = true)
     public List<Student> getAllStudents() {
+        bypassCacheStoreOnReplicas();
         return studentRepository.findAll();
     }
+
+    /**
+     * Passes every student to the given consumer, one at a time, in ID order.
+     * Rows are read through a database cursor and each student is detached once consumed,
+     * so memory use stays flat whatever the table size.
+     *
+     * @param consumer the consumer receiving each student
+     */
+    @Transactional(readOnly = true)
+    public void forEachStudent(Consumer<Student> consumer) {
+        bypassCacheStoreOnReplicas();
+        try (Stream<Student> students = studentRepository.streamAllByOrderByIdAsc()) {
+            students.forEach(student -> {
+                consumer.accept(student);
+                entityManager.detach(student);
+            });
+        }
+    }
+
+    /**
+     * Retrieves one page of students using keyset pagination.
+     * Each page is read with an index range scan that starts right after the previous page,
+     * so deep pages cost the same as the first one.
+     *
+     * @param sort the sort order (id, lastname or email), or null for id
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the page size, or null for the default; capped at the configured maximum
+     * @return the page of students and the cursor of the next page
+     * @throws IllegalArgumentException if the sort order or the cursor is invalid
+     */
+    @Transactional(readOnly = true)
+    public StudentPage getStudentsPage(String sort, String cursor, Integer limit) {
+        bypassCacheStoreOnReplicas();
+        StudentSort studentSort = StudentSort.fromParameter(sort);
+        StudentCursor after = cursor == null
+                ? new StudentCursor(studentSort, "", 0)
+                : StudentCursor.decode(cursor, studentSort);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        // Fetch one extra student to know whether there is a next page
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<Student> students = switch (studentSort) {
+            case ID -> studentRepository.findByIdGreaterThanOrderByIdAsc(after.lastId(), pageable);
+            case LASTNAME -> studentRepository.findPageByLastnameAfter(after.lastValue(), after.lastId(), pageable);
+            case EMAIL -> studentRepository.findByEmailGreaterThanOrderByEmailAsc(after.lastValue(), pageable);
+        };
+
+        if (students.size() <= pageSize) {
+            return new StudentPage(students, null);
+        }
+        List<Student> page = students.subList(0, pageSize);
+        return new StudentPage(page, StudentCursor.after(studentSort, page.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * Retrieves the students created, updated or deleted since a revision, in the order they changed.
+     * Changes are returned up to the highest fully committed revision, so a client that stores the
+     * returned revision and passes it back next time never misses a change.
+     *
+     * @param since the revision the client is synchronized up to, or 0 for everything
+     * @param cursor the cursor returned with the previous batch of changes, or null for the first batch
+     * @param limit the batch size, or null for the default; capped at the configured maximum
+     * @return the changes, the revision they bring the client up to, and the cursor of the next batch
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    // Not read-only, so it is served by the primary: the committed revision is tracked by this instance,
+    // and a replica lagging behind it would let the client skip changes for good
+    @Transactional
+    public StudentChanges getChanges(long since, String cursor, Integer limit) {
+        // Start after every change of the given revision
+        StudentChangesCursor after = cursor == null
+                ? new StudentChangesCursor(since, Long.MAX_VALUE, revisionClock.committedRevision())
+                : StudentChangesCursor.decode(cursor);
+        int batchSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        // Fetch one extra change from each source to know whether there are more
+        Pageable pageable = PageRequest.of(0, batchSize + 1);
+        List<Student> students = studentRepository.findChangesAfter(after.revision(), after.studentId(), after.upTo(), pageable);
+        List<StudentTombstone> tombstones = tombstoneRepository.findChangesAfter(after.revision(), after.studentId(), after.upTo(), pageable);
+
+        // Merge both sources in (revision, ID) order
+        List<Student> updated = new ArrayList<>();
+        LongStream.Builder deleted = LongStream.builder();
+        int i = 0;
+        int j = 0;
+        long lastRevision = after.revision();
+        long lastId = after.studentId();
+        while (i + j < batchSize && (i < students.size() || j < tombstones.size())) {
+            boolean takeStudent = j == tombstones.size() || (i < students.size()
+                    && compare(students.get(i).getRevision(), students.get(i).getId(), tombstones.get(j)) < 0);
+            if (takeStudent) {
+                Student student = students.get(i++);
+                updated.add(student);
+                lastRevision = student.getRevision();
+                lastId = student.getId();
+            } else {
+                StudentTombstone tombstone = tombstones.get(j++);
+                deleted.add(tombstone.getStudentId());
+                lastRevision = tombstone.getRevision();
+                lastId = tombstone.getStudentId();
+            }
+        }
+
+        boolean more = i < students.size() || j < tombstones.size();
+        String nextCursor = more ? new StudentChangesCursor(lastRevision, lastId, after.upTo()).encode() : null;
+        return new StudentChanges(updated, deleted.build().toArray(), after.upTo(), nextCursor);
+    }
+
+    /**
+     * Keeps the students read by the current transaction out of the second-level cache when they may come
+     * from a replica, which can lag behind the primary and would otherwise cache rows that are already stale.
+     */
+    private void bypassCacheStoreOnReplicas() {
+        if (replicasEnabled) {
+            entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        }
+    }
+
+    private static int compare(long revision, long id, StudentTombstone tombstone) {
+        int byRevision = Long.compare(revision, tombstone.getRevision());
+        return byRevision != 0 ? byRevision : Long.compare(id, tombstone.getStudentId());
+    }
 }
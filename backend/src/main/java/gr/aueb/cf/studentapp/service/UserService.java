@@ -1,35 +1,61 @@
 package gr.aueb.cf.studentapp.service;
 
+import gr.aueb.cf.studentapp.audit.AuditTrail;
+import gr.aueb.cf.studentapp.enums.AuditAction;
+import gr.aueb.cf.studentapp.enums.AuditEntity;
 import gr.aueb.cf.studentapp.exceptions.UserNotFoundException;
 import gr.aueb.cf.studentapp.model.User;
 import gr.aueb.cf.studentapp.repository.UserRepository;
+import gr.aueb.cf.studentapp.security.CachedUserDetailsService;
+import gr.aueb.cf.studentapp.security.TokenVersionRegistry;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for handling user-related operations including password encoding.
+ * Changes read the user and write it in one read-write transaction, so the read never comes from a
+ * lagging replica. The token versions and cached users are refreshed once the change commits.
  */
 @Service
-public class UserService {
+public class UserService implements UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final CachedUserDetailsService userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final AuditTrail auditTrail;
 
     /**
-     * Constructor-based dependency injection for UserRepository and PasswordEncoder.
+     * Constructor-based dependency injection for UserRepository, PasswordEncoder, TokenVersionRegistry,
+     * the cached UserDetailsService, RefreshTokenService and AuditTrail.
      */
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       TokenVersionRegistry tokenVersionRegistry, CachedUserDetailsService userDetailsService,
+                       RefreshTokenService refreshTokenService, AuditTrail auditTrail) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.userDetailsService = userDetailsService;
+        this.refreshTokenService = refreshTokenService;
+        this.auditTrail = auditTrail;
     }
 
     /**
      * Find a user by their username.
      */
+    @Transactional(readOnly = true)
     public User getUserByUsername(String username) throws UserNotFoundException {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException("User not found with username: " + username));
@@ -38,6 +64,7 @@ public class UserService {
     /**
      * Retrieve all users from the database.
      */
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -45,40 +72,121 @@ public class UserService {
     /**
      * Save a new user with an encoded password only if the username is unique.
      */
+    @Transactional
     public User saveUser(User user) {
         if (userRepository.findByUsername(user.getUsername()).isPresent()) {
             throw new IllegalArgumentException("Username already exists: " + user.getUsername());
         }
         // Ensure password is encrypted before saving
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        long id = savedUser.getId();
+        String username = savedUser.getUsername();
+        int tokenVersion = savedUser.getTokenVersion();
+        afterCommit(() -> {
+            tokenVersionRegistry.update(username, id, tokenVersion);
+            userDetailsService.evict(username);
+        });
+        auditTrail.record(AuditEntity.USER, AuditAction.CREATE, savedUser.getId(), auditDetail(savedUser));
+        return savedUser;
     }
 
     /**
-     * Update an existing user's details while ensuring the password is not double-encrypted.
+     * Update an existing user's details. A missing or blank password, or the stored hash sent back,
+     * keeps the current password; any other value is encoded as the new one.
      */
+    @Transactional(rollbackFor = Exception.class)
     public User updateUser(User user) throws UserNotFoundException {
         User existingUser = userRepository.findById(user.getId())
                 .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + user.getId()));
 
-        // Ενημέρωση κωδικού μόνο αν είναι απλό κείμενο
-        if (!user.getPassword().equals(existingUser.getPassword()) &&
-                !passwordEncoder.matches(user.getPassword(), existingUser.getPassword())) {
+        if (user.getPassword() == null || user.getPassword().isBlank()
+                || user.getPassword().equals(existingUser.getPassword())) {
+            user.setPassword(existingUser.getPassword());
+        } else {
             user.setPassword(passwordEncoder.encode(user.getPassword()));
         }
 
-        return userRepository.save(user);
+        // Revoke every token issued before this change
+        user.setTokenVersion(existingUser.getTokenVersion() + 1);
+        String previousUsername = existingUser.getUsername();
+        User savedUser = userRepository.save(user);
+
+        long id = savedUser.getId();
+        String username = savedUser.getUsername();
+        int tokenVersion = savedUser.getTokenVersion();
+        afterCommit(() -> {
+            tokenVersionRegistry.remove(previousUsername);
+            tokenVersionRegistry.update(username, id, tokenVersion);
+            userDetailsService.evict(previousUsername);
+            userDetailsService.evict(username);
+        });
+        refreshTokenService.revokeAll(previousUsername);
+        auditTrail.record(AuditEntity.USER, AuditAction.UPDATE, savedUser.getId(), auditDetail(savedUser));
+        return savedUser;
     }
 
     /**
      * Delete a user by their ID.
      */
+    @Transactional(rollbackFor = Exception.class)
     public void deleteUser(Long id) throws UserNotFoundException {
-        if (!userRepository.existsById(id)) {
-            throw new UserNotFoundException("User not found with ID: " + id);
-        }
+        User existingUser = userRepository.findById(id)
+                .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + id));
         userRepository.deleteById(id);
+        String username = existingUser.getUsername();
+        afterCommit(() -> {
+            tokenVersionRegistry.remove(username);
+            userDetailsService.evict(username);
+        });
+        refreshTokenService.revokeAll(username);
+        auditTrail.record(AuditEntity.USER, AuditAction.DELETE, id, auditDetail(existingUser));
+    }
+
+    /**
+     * Store a re-encoded password hash after a successful login.
+     * Called by the authentication manager when the stored hash uses an outdated encoding or cost.
+     * The token version is left unchanged, since the password itself did not change. Only the password
+     * column is written, so a concurrent change to the role, username or token version is not overwritten.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        String username = userDetails.getUsername();
+        if (userRepository.updatePassword(username, newPassword) > 0) {
+            afterCommit(() -> userDetailsService.evict(username));
+            // Audited as the user logging in, who is not authenticated yet
+            userRepository.findByUsername(username).ifPresent(user -> {
+                Map<String, Object> detail = auditDetail(user);
+                detail.put("password", "rehashed");
+                auditTrail.record(username, AuditEntity.USER, AuditAction.UPDATE, user.getId(), detail);
+            });
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
     }
 
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 
+    /**
+     * The audited fields of a user, never including the password hash.
+     */
+    private static Map<String, Object> auditDetail(User user) {
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("username", user.getUsername());
+        detail.put("role", user.getRole());
+        return detail;
+    }
 }
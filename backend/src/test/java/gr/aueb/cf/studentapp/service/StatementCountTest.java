@@ -0,0 +1,86 @@
+package gr.aueb.cf.studentapp.service;
+
+import gr.aueb.cf.studentapp.enums.Role;
+import gr.aueb.cf.studentapp.instrumentation.QueryInstrumentation;
+import gr.aueb.cf.studentapp.model.Student;
+import gr.aueb.cf.studentapp.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pins the number of statements of the main write operations, so that an extra round trip fails the build.
+ * Runs the whole application against an in-memory H2 database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-count;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.devtools.restart.enabled=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "audit.enabled=false"
+})
+class StatementCountTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private QueryInstrumentation queryInstrumentation;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void createStudent() throws Exception {
+        Student student = newStudent();
+
+        queryInstrumentation.count(() -> studentService.createStudent(student)).assertStatements(2);
+    }
+
+    @Test
+    void updateStudent() throws Exception {
+        Student student = studentService.createStudent(newStudent());
+        Student changes = new Student(null, "Othername", "Othername", student.getEmail());
+
+        queryInstrumentation.count(() -> studentService.updateStudent(student.getId(), changes)).assertStatements(2);
+    }
+
+    @Test
+    void updateStudentEmail() throws Exception {
+        Student student = studentService.createStudent(newStudent());
+        Student changes = new Student(null, "Othername", "Othername", "changed" + SEQUENCE.incrementAndGet() + "@example.com");
+
+        queryInstrumentation.count(() -> studentService.updateStudent(student.getId(), changes)).assertStatements(3);
+    }
+
+    @Test
+    void saveUser() throws Exception {
+        User user = newUser();
+
+        queryInstrumentation.count(() -> userService.saveUser(user)).assertStatements(2);
+    }
+
+    @Test
+    void updateUser() throws Exception {
+        User user = userService.saveUser(newUser());
+        User changes = new User(user.getId(), user.getUsername(), "changed-secret", Role.ADMIN, 0);
+
+        queryInstrumentation.count(() -> userService.updateUser(changes)).assertStatements(3);
+    }
+
+    private static Student newStudent() {
+        return new Student(null, "Firstname", "Lastname", "student" + SEQUENCE.incrementAndGet() + "@example.com");
+    }
+
+    private static User newUser() {
+        return new User(null, "user" + SEQUENCE.incrementAndGet(), "secret1", Role.USER, 0);
+    }
+}
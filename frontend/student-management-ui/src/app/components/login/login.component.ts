@@ -39,13 +39,14 @@ export class LoginComponent {
 
   /**
    * AuthService login method.
-   * On success, the user's token is stored, and they are redirected to the dashboard.
+   * On success, the user's tokens are stored, and they are redirected to the dashboard.
    * On failure, an alert is displayed.
    */
   login() {
     this.authService.login(this.username, this.password).subscribe({
       next: (response: any) => {
         this.authService.setToken(response.token);
+        this.authService.setRefreshToken(response.refreshToken);
         this.router.navigate(['/dashboard']);
       },
       error: () => alert('Login Failed')
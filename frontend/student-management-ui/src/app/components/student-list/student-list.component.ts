@@ -42,6 +42,12 @@ export class StudentListComponent implements OnInit {
   // Array of student objects fetched from the API
   students: any[] = [];
 
+  // Students by id, kept up to date with the changes fetched from the API
+  private studentsById = new Map<number, any>();
+
+  // Revision the student list is synchronized up to
+  private revision = 0;
+
   // Role of current user
   role: string = '';
 
@@ -83,12 +89,19 @@ export class StudentListComponent implements OnInit {
     this.dataSource.paginator = this.paginator; // Sets up the data source paginator
   }
 
-  // Fetches the list of students from the API and updates the data source
-  fetchStudents() {
-    this.studentService.getStudents().subscribe({
-        next: (students) =>{
-          this.students = students;
-          this.dataSource.data = students;
+  // Fetches only the students changed since the last fetch and updates the data source
+  fetchStudents(cursor?: string) {
+    this.studentService.getStudentChanges(this.revision, cursor).subscribe({
+        next: (changes) => {
+          changes.updated.forEach((student: any) => this.studentsById.set(student.id, student));
+          changes.deleted.forEach((id: number) => this.studentsById.delete(id));
+          if (changes.nextCursor) {
+            this.fetchStudents(changes.nextCursor); // More changes to fetch
+            return;
+          }
+          this.revision = changes.revision;
+          this.students = Array.from(this.studentsById.values());
+          this.dataSource.data = this.students;
         },
         error: (error) => {
             alert('Unauthorized: ' + error.message);
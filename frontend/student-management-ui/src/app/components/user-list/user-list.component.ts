@@ -195,7 +195,8 @@ export class UserListComponent implements OnInit, AfterViewInit {
       return;
     }
 
-    this.userToEdit = { ...user };
+    // The password is left empty and only sent if a new one is typed
+    this.userToEdit = { ...user, password: '' };
     this.showEditForm = true;
   }
 
@@ -214,7 +215,7 @@ export class UserListComponent implements OnInit, AfterViewInit {
       return;
     }
 
-    if (!trimmedPassword || trimmedPassword.length < 6) {
+    if (trimmedPassword && trimmedPassword.length < 6) {
       alert('Error in updating User. Please fill the form correctly.');
       return;
     }
@@ -234,7 +235,7 @@ export class UserListComponent implements OnInit, AfterViewInit {
     this.userService.updateUser(this.userToEdit.id, {
       ...this.userToEdit,
       username: trimmedUsername,
-      password: trimmedPassword,
+      password: trimmedPassword || undefined, // Omitted to keep the current password
     }).subscribe({
       next: () => {
         alert('User updated successfully!');
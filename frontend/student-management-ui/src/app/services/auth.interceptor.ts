@@ -0,0 +1,34 @@
+/**
+ * authInterceptor
+ *
+ * Keeps the access token of authenticated requests fresh. Access tokens are short-lived, so before
+ * sending a request whose token is about to expire, the token is renewed with the refresh token;
+ * a request rejected with 401 because its token expired meanwhile is renewed and retried once.
+ * Requests sent without a token, such as login, registration and the refresh itself, pass through unchanged.
+ */
+import { HttpErrorResponse, HttpInterceptorFn, HttpRequest } from '@angular/common/http';
+import { inject } from '@angular/core';
+import { catchError, of, switchMap, throwError } from 'rxjs';
+import { AuthService } from './auth.service';
+
+export const authInterceptor: HttpInterceptorFn = (req, next) => {
+  const authService = inject(AuthService);
+  if (!req.headers.has('Authorization')) {
+    return next(req);
+  }
+
+  // Sets the current token, which may be newer than the one the service read
+  const withToken = (request: HttpRequest<unknown>, token: string) =>
+    request.clone({ setHeaders: { Authorization: `Bearer ${token}` } });
+
+  const token$ = authService.isTokenExpiring() ? authService.refreshToken() : of(authService.getToken() ?? '');
+  return token$.pipe(
+    switchMap(token => next(withToken(req, token))),
+    catchError((error: unknown) => {
+      if (error instanceof HttpErrorResponse && error.status === 401 && authService.getRefreshToken()) {
+        return authService.refreshToken().pipe(switchMap(token => next(withToken(req, token))));
+      }
+      return throwError(() => error);
+    })
+  );
+};
@@ -3,11 +3,12 @@
  * 
  * This service handles user authentication, including login, token management, and user role management.
  * It interacts with the backend API for login and stores authentication-related information in localStorage.
+ * Access tokens are short-lived; they are renewed with the refresh token, see authInterceptor.
 */
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
 import { Router } from '@angular/router';
-import { Observable } from 'rxjs';
+import { Observable, catchError, finalize, map, shareReplay, throwError } from 'rxjs';
 
 @Injectable({
   providedIn: 'root'
@@ -18,6 +19,21 @@ export class AuthService {
   */
   private apiUrl = 'http://localhost:8080/api/login';
 
+  /**
+  * API endpoint for exchanging a refresh token for a new access token
+  */
+  private refreshUrl = 'http://localhost:8080/api/token/refresh';
+
+  /**
+  * How long before its expiry an access token is renewed, in milliseconds
+  */
+  private refreshMargin = 30000;
+
+  /**
+  * The refresh in progress, shared by every request waiting for a new token
+  */
+  private refreshing: Observable<string> | null = null;
+
   constructor(private http: HttpClient, private router: Router) {}
 
   login(username: string, password: string): Observable<any> {
@@ -52,6 +68,45 @@ export class AuthService {
     return localStorage.getItem('token');
   }
 
+  // Saves the refresh token returned with every new access token
+  setRefreshToken(refreshToken: string): void {
+    localStorage.setItem('refreshToken', refreshToken);
+  }
+
+  // Retrieves the stored refresh token from localStorage
+  getRefreshToken(): string | null {
+    return localStorage.getItem('refreshToken');
+  }
+
+  // Checks if the access token expires within the refresh margin
+  isTokenExpiring(): boolean {
+    const token = this.getToken();
+    const payload = token ? this.decodeToken(token) : null;
+    return !!payload?.exp && payload.exp * 1000 - Date.now() < this.refreshMargin;
+  }
+
+  // Exchanges the refresh token for a new access token and refresh token, and stores both.
+  // Only one refresh runs at a time: the refresh token is rotated on use, so a second
+  // concurrent exchange of the same token would be rejected. Logs out if the refresh fails.
+  refreshToken(): Observable<string> {
+    if (!this.refreshing) {
+      this.refreshing = this.http.post<any>(this.refreshUrl, { refreshToken: this.getRefreshToken() }).pipe(
+        map(response => {
+          this.setToken(response.token);
+          this.setRefreshToken(response.refreshToken);
+          return response.token as string;
+        }),
+        catchError(error => {
+          this.logout();
+          return throwError(() => error);
+        }),
+        finalize(() => this.refreshing = null),
+        shareReplay(1)
+      );
+    }
+    return this.refreshing;
+  }
+
   // Retrieves username from localStorage
   getUsername(): string {
     return localStorage.getItem('username') || '';
@@ -5,7 +5,7 @@
  * It ensures that requests include authorization headers by using the AuthService.
  */
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { AuthService } from './auth.service';
 import { Observable } from 'rxjs';
 
@@ -33,6 +33,15 @@ export class StudentService {
     return this.http.get<any[]>(this.apiUrl, { headers: this.getAuthHeaders() });
   }
 
+  // GET Method, Get the students created, updated or deleted since a revision
+  getStudentChanges(since: number, cursor?: string): Observable<any> {
+    let params = new HttpParams().set('since', since);
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    return this.http.get<any>(`${this.apiUrl}/changes`, { headers: this.getAuthHeaders(), params });
+  }
+
   // POST Method, Create new student
   createStudent(studentData: any): Observable<any> {
     return this.http.post(this.apiUrl, studentData, { headers: this.getAuthHeaders() });